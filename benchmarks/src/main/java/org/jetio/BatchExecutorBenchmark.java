@@ -0,0 +1,99 @@
+package org.jetio;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jetio.util.ExecutorBatchExecutor;
+import org.jetio.util.WorkerThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Hand a burst of short tasks, like the sessions a single select can find readable, to the worker pool through
+ * {@link ExecutorBatchExecutor}, and wait for all of them to run. Compares a task per item with splitting the burst
+ * into a chunk per core.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class BatchExecutorBenchmark {
+    @Param( { "16", "500" } )
+    public int burst;
+
+    /** Most tasks per burst, 0 for a task per item */
+    @Param( { "0", "cores" } )
+    public String tasks;
+
+    /** Amount of work per item, in JMH's arbitrary units */
+    @Param( { "100" } )
+    public int work;
+
+    private ExecutorService workers;
+    private ExecutorBatchExecutor executor;
+    private Runnable[] batch;
+    private final AtomicInteger remaining = new AtomicInteger();
+    private volatile Thread waiter;
+
+    @Setup
+    public void setup() {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        workers = Executors.newFixedThreadPool( 100, new WorkerThreadFactory( "batch-benchmark", 0 ) );
+        executor = "0".equals( tasks )
+                   ? new ExecutorBatchExecutor( workers )
+                   : new ExecutorBatchExecutor( workers, "cores".equals( tasks ) ? cores : Integer.parseInt( tasks ) );
+
+        Runnable item = new Runnable() {
+            @Override
+            public void run() {
+                Blackhole.consumeCPU( work );
+
+                if ( 0 == remaining.decrementAndGet() ) {
+                    LockSupport.unpark( waiter );
+                }
+            }
+        };
+
+        batch = new Runnable[burst];
+
+        for ( int i = 0; i < burst; i++ ) {
+            batch[i] = item;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        workers.shutdownNow();
+    }
+
+    @Benchmark
+    public void burst() {
+        waiter = Thread.currentThread();
+        remaining.set( burst );
+
+        executor.execute( batch );
+
+        while ( remaining.get() > 0 ) {
+            LockSupport.park( this );
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.jetio;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Acquire and release from the shared {@link BufferQueue}, alone, under contention, and when buffers are released on
+ * a different thread than they were acquired on, as happens when a worker writes what it read.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class BufferQueueBenchmark {
+    /** Buffers held at once by each thread, deep enough to make threads trade magazines with the depot */
+    @Param( { "1", "64" } )
+    public int depth;
+
+    private BufferQueue queue;
+    private final Queue<ByteBuffer> handoff = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    @Setup
+    public void setup() {
+        queue = new BufferQueue( new Configuration() );
+    }
+
+    @State( Scope.Thread )
+    public static class Held {
+        ByteBuffer[] buffers;
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public void acquireRelease( Held held ) {
+        cycle( held );
+    }
+
+    @Benchmark
+    @Threads( 8 )
+    public void acquireReleaseContended( Held held ) {
+        cycle( held );
+    }
+
+    private void cycle( Held held ) {
+        if ( null == held.buffers ) {
+            held.buffers = new ByteBuffer[depth];
+        }
+
+        for ( int i = 0; i < depth; i++ ) {
+            held.buffers[i] = queue.acquire();
+        }
+
+        for ( int i = 0; i < depth; i++ ) {
+            queue.release( held.buffers[i] );
+            held.buffers[i] = null;
+        }
+    }
+
+    @Benchmark
+    @Group( "handoff" )
+    @GroupThreads( 2 )
+    public void acquireOnOneThread() {
+        // Don't let the acquiring side run away with the whole heap when the releasing side falls behind
+        if ( handoff.size() < 4096 ) {
+            handoff.offer( queue.acquire() );
+        }
+    }
+
+    @Benchmark
+    @Group( "handoff" )
+    @GroupThreads( 2 )
+    public void releaseOnAnother() {
+        ByteBuffer buffer = handoff.poll();
+
+        if ( null != buffer ) {
+            queue.release( buffer );
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.jetio.metrics.Metrics;
+import org.jetlang.channels.Publisher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Probe a session that has nothing to read with {@link CheckForReadReadiness}, the cost paid for every spurious or
+ * up-front readiness check before a session goes back into its read selector.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class CheckForReadReadinessBenchmark {
+    private Loopback loopback;
+    private Event event;
+    private CheckForReadReadiness check;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup( Blackhole blackhole ) throws IOException {
+        this.blackhole = blackhole;
+
+        loopback = new Loopback( new Configuration() );
+        event = new Event( loopback.session() );
+        check = new CheckForReadReadiness( new Publisher<Event>() {
+            @Override
+            public void publish( Event msg ) {
+                CheckForReadReadinessBenchmark.this.blackhole.consume( msg );
+            }
+        }, Loopback.<DataEvent<ByteBuffer>>discard(), Loopback.<DataEvent<IOException>>discard(), new Metrics() );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        loopback.close();
+    }
+
+    @Benchmark
+    public void probeIdleSession() {
+        check.onMessage( event );
+    }
+}
@@ -0,0 +1,120 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.jetio.codec.FixedLengthFrameDecoder;
+import org.jetio.codec.FrameHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Echo fixed-size messages through an in-process {@link JetIO} instance over loopback. Each operation sends one
+ * message on every connection, then waits for all of the echoes, so throughput is in rounds and the sampled time is
+ * the latency of the slowest connection in the round.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+@BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class EchoBenchmark {
+    @Param( { "1", "16", "128" } )
+    public int connections;
+
+    @Param( { "64", "1024" } )
+    public int messageSize;
+
+    @Param( { "1", "4" } )
+    public int selectors;
+
+    @Param( { "Fibers", "Direct" } )
+    public ExecutionEngine engine;
+
+    private JetIO io;
+    private SocketChannel[] clients;
+    private ByteBuffer message;
+    private ByteBuffer echo;
+
+    @Setup
+    public void setup() throws IOException {
+        InetSocketAddress address = new InetSocketAddress( "localhost", 10749 );
+        Configuration config = new Configuration();
+
+        config.setName( "echo-benchmark" );
+        config.setBindAddress( address );
+        config.setReadUponConnect( true );
+        config.setTcpNoDelay( true );
+        config.setExecutionEngine( engine );
+        config.setSelectorCount( selectors );
+
+        io = new JetIO( new FixedLengthFrameDecoder( new FrameHandler() {
+            @Override
+            public void frame( Session session, ByteBuffer frame ) {
+                ByteBuffer buffer = session.buffers().acquire( frame.remaining() );
+
+                buffer.put( frame );
+                buffer.flip();
+
+                session.write( buffer );
+            }
+        }, messageSize ), config );
+        io.start();
+
+        clients = new SocketChannel[connections];
+
+        for ( int i = 0; i < clients.length; i++ ) {
+            clients[i] = SocketChannel.open( address );
+            clients[i].socket().setTcpNoDelay( true );
+        }
+
+        message = ByteBuffer.allocateDirect( messageSize );
+        echo = ByteBuffer.allocateDirect( messageSize );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for ( SocketChannel client : clients ) {
+            client.close();
+        }
+
+        io.dispose();
+    }
+
+    @Benchmark
+    public void round() throws IOException {
+        for ( SocketChannel client : clients ) {
+            message.clear();
+
+            while ( message.hasRemaining() ) {
+                client.write( message );
+            }
+        }
+
+        for ( SocketChannel client : clients ) {
+            echo.clear();
+
+            while ( echo.hasRemaining() ) {
+                if ( client.read( echo ) < 0 ) {
+                    throw new IOException( "connection closed" );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.jetio.metrics.Metrics;
+import org.jetlang.channels.Publisher;
+
+/**
+ * A {@link Session} wired to one end of a loopback connection, outside of any {@link JetIO} instance, so that
+ * individual pieces of the read and write paths can be measured on their own.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class Loopback {
+    private final ServerSocketChannel server;
+    private final SocketChannel client;
+    private final Session session;
+    private Thread drain;
+
+    Loopback( Configuration config ) throws IOException {
+        server = ServerSocketChannel.open();
+        server.socket().bind( new InetSocketAddress( "localhost", 0 ) );
+
+        client = SocketChannel.open( server.socket().getLocalSocketAddress() );
+
+        session = new Session( server.accept(),
+                               Loopback.<Event>discard(),
+                               Loopback.<Event>discard(),
+                               Loopback.<DataEvent<IOException>>discard(),
+                               Loopback.<Event>discard(),
+                               new SessionBufferSource( new BufferQueue( config ), config.getBufferSlizeSize() ),
+                               0,
+                               true,
+                               config,
+                               new Metrics() );
+        session.setNonBlocking();
+    }
+
+    Session session() {
+        return session;
+    }
+
+    SocketChannel client() {
+        return client;
+    }
+
+    /** Read and throw away everything written to the session, so writes never back up */
+    void drain() {
+        drain = new Thread( "loopback drain" ) {
+            @Override
+            public void run() {
+                byte[] bytes = new byte[65536];
+
+                try {
+                    InputStream in = client.socket().getInputStream();
+
+                    while ( in.read( bytes ) >= 0 ) {
+                        // discard
+                    }
+                } catch( IOException e ) {
+                    // closed
+                }
+            }
+        };
+
+        drain.setDaemon( true );
+        drain.start();
+    }
+
+    void close() throws IOException {
+        session.close();
+        client.close();
+        server.close();
+    }
+
+    static <T> Publisher<T> discard() {
+        return new Publisher<T>() {
+            @Override
+            public void publish( T msg ) {
+            }
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package org.jetio;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read a message through {@link NonblockingPushbackInputStream}, as a {@link StreamMessageReader} does, with the first
+ * chunk of the message pushed back and the remainder coming from the underlying stream.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class NonblockingPushbackInputStreamBenchmark {
+    @Param( { "64", "4096" } )
+    public int pushedBack;
+
+    @Param( { "0", "4096" } )
+    public int remaining;
+
+    /** Size of the reads the message reader makes */
+    @Param( { "1", "512" } )
+    public int readSize;
+
+    private byte[] initial;
+    private byte[] rest;
+    private byte[] into;
+
+    @Setup
+    public void setup() {
+        initial = new byte[pushedBack];
+        rest = new byte[remaining];
+        into = new byte[readSize];
+    }
+
+    @Benchmark
+    public int readMessage() throws IOException {
+        NonblockingPushbackInputStream in =
+            new NonblockingPushbackInputStream( new ByteArrayInputStream( rest ), initial.clone() );
+        int total = 0;
+        int count;
+
+        if ( 1 == readSize ) {
+            while ( in.read() >= 0 ) {
+                total++;
+            }
+        } else {
+            while ( ( count = in.read( into, 0, into.length ) ) > 0 ) {
+                total += count;
+            }
+        }
+
+        return total;
+    }
+}
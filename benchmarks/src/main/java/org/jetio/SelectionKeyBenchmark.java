@@ -0,0 +1,83 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.nio.channels.Selector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Put a session into a selector and take it back out again, as happens each time a session is read from. Compares
+ * registering and cancelling its key with a {@link Configuration#isRetainSelectionKeys() retained} key whose interest
+ * is toggled. Each way selects twice per cycle, as a cancelled key only leaves the selector on the next select.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class SelectionKeyBenchmark {
+    @Param( { "false", "true" } )
+    public boolean retainSelectionKeys;
+
+    private Loopback loopback;
+    private Selector selector;
+    private SelectionKeys keys;
+
+    @Setup
+    public void setup() throws IOException {
+        loopback = new Loopback( new Configuration() );
+        selector = Selector.open();
+        keys = new SelectionKeys( loopback.session(), retainSelectionKeys );
+
+        if ( retainSelectionKeys ) {
+            register();
+            keys.interested( SelectionOp.Read, false );
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        keys.cancel();
+        selector.close();
+        loopback.close();
+    }
+
+    @Benchmark
+    public int cycle() throws IOException {
+        if ( retainSelectionKeys ) {
+            keys.interested( SelectionOp.Read, true );
+        } else {
+            register();
+        }
+
+        int selected = selector.selectNow();
+
+        if ( retainSelectionKeys ) {
+            keys.interested( SelectionOp.Read, false );
+        } else {
+            keys.cancel( SelectionOp.Read );
+        }
+
+        return selected + selector.selectNow();
+    }
+
+    private void register() throws IOException {
+        keys.set( SelectionOp.Read,
+                  loopback.session().channel().register( selector, SelectionOp.Read.op(), loopback.session() ) );
+    }
+}
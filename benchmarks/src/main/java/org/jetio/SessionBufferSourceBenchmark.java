@@ -0,0 +1,67 @@
+package org.jetio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Acquire and release through a session's own {@link SessionBufferSource}, by the session's reader alone and while
+ * a second thread writes to it, as the read and write paths do.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class SessionBufferSourceBenchmark {
+    private SessionBufferSource buffers;
+    private int size;
+
+    @Setup
+    public void setup() {
+        Configuration config = new Configuration();
+
+        size = config.getBufferSlizeSize();
+        buffers = new SessionBufferSource( new BufferQueue( config ), size );
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public ByteBuffer acquireRelease() {
+        ByteBuffer buffer = buffers.acquire();
+
+        buffers.release( buffer );
+
+        return buffer;
+    }
+
+    @Benchmark
+    @Threads( 2 )
+    public ByteBuffer acquireReleaseShared() {
+        return acquireRelease();
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public ByteBuffer acquireReleaseOtherSize() {
+        ByteBuffer buffer = buffers.acquire( size * 2 );
+
+        buffers.release( buffer );
+
+        return buffer;
+    }
+}
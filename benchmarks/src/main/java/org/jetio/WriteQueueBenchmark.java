@@ -0,0 +1,81 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Add to a session's {@link WriteQueue} and flush it to a loopback connection that is drained as fast as possible,
+ * from one writer and from several writers competing to flush.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class WriteQueueBenchmark {
+    @Param( { "64", "4096" } )
+    public int messageSize;
+
+    /** Buffers per write, gathered into a single write when flushed together */
+    @Param( { "1", "4" } )
+    public int buffersPerWrite;
+
+    private Loopback loopback;
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws IOException {
+        loopback = new Loopback( new Configuration() );
+        loopback.drain();
+
+        payload = new byte[messageSize / buffersPerWrite];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        loopback.close();
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public void write() {
+        loopback.session().write( message() );
+    }
+
+    @Benchmark
+    @Threads( 4 )
+    public void writeContended() {
+        loopback.session().write( message() );
+    }
+
+    private ByteBuffer[] message() {
+        Session session = loopback.session();
+        ByteBuffer[] buffers = new ByteBuffer[buffersPerWrite];
+
+        for ( int i = 0; i < buffers.length; i++ ) {
+            buffers[i] = session.buffers().acquire( payload.length );
+            buffers[i].put( payload );
+            buffers[i].flip();
+        }
+
+        return buffers;
+    }
+}
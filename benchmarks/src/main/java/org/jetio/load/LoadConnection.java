@@ -0,0 +1,215 @@
+package org.jetio.load;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * One connection driven by the {@link LoadGenerator}
+ *
+ * Every message leads with the time it was meant to be sent, which the echo carries back. When sending at a fixed
+ * rate, latency is measured from that intended time rather than from when the message actually went out, so a stall
+ * counts against every message that should have been sent during it, not just the one that was stuck. That corrects
+ * for the coordinated omission a closed-loop client would otherwise commit.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class LoadConnection {
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos( 1 );
+
+    private final LoadOptions options;
+    private final SocketChannel channel;
+    private final Histogram histogram = new Histogram( HIGHEST_LATENCY, 3 );
+    /** Nanoseconds between intended sends, or 0 to send as fast as possible */
+    private final long interval;
+    /** When the first message is meant to go out, staggered across connections so they don't all send in lockstep */
+    private final long offset;
+    private final Semaphore window;
+    private final Thread sender;
+    private final Thread receiver;
+
+    private volatile boolean running = true;
+    private volatile boolean recording;
+    private long received;
+    private volatile IOException failure;
+
+    LoadConnection( int index, LoadOptions options, InetSocketAddress target ) throws IOException {
+        this.options = options;
+        this.channel = SocketChannel.open( target );
+        this.channel.socket().setTcpNoDelay( true );
+        this.interval = 0 == options.rate ? 0 : TimeUnit.SECONDS.toNanos( 1 ) / options.rate;
+        this.offset = interval * index / options.connections;
+        this.window = new Semaphore( options.window );
+
+        if ( MessagePattern.Streaming == options.pattern ) {
+            sender = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    stream();
+                }
+            }, "load send " + index );
+            receiver = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    receive();
+                }
+            }, "load receive " + index );
+        } else {
+            sender = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    requestResponse();
+                }
+            }, "load " + index );
+            receiver = null;
+        }
+    }
+
+    void start() {
+        sender.start();
+
+        if ( null != receiver ) {
+            receiver.start();
+        }
+    }
+
+    void startRecording() {
+        recording = true;
+    }
+
+    /** Stop sending, and give up on whatever echoes are still in flight */
+    void stop() throws InterruptedException {
+        running = false;
+        window.release( options.window );
+
+        sender.join();
+
+        try {
+            channel.close();
+        } catch( IOException e ) {
+            // going away anyway
+        }
+
+        if ( null != receiver ) {
+            receiver.join();
+        }
+    }
+
+    Histogram histogram() {
+        return histogram;
+    }
+
+    long received() {
+        return received;
+    }
+
+    IOException failure() {
+        return failure;
+    }
+
+    private void requestResponse() {
+        ByteBuffer out = ByteBuffer.allocateDirect( options.size );
+        ByteBuffer in = ByteBuffer.allocateDirect( options.size );
+        long intended = System.nanoTime() + offset;
+
+        try {
+            while ( running ) {
+                send( out, pace( intended ) );
+                receive( in );
+
+                intended += interval;
+            }
+        } catch( IOException e ) {
+            failed( e );
+        }
+    }
+
+    private void stream() {
+        ByteBuffer out = ByteBuffer.allocateDirect( options.size );
+        long intended = System.nanoTime() + offset;
+
+        try {
+            while ( running ) {
+                if ( 0 == interval ) {
+                    window.acquireUninterruptibly();
+
+                    if ( !running ) {
+                        break;
+                    }
+                }
+
+                send( out, pace( intended ) );
+
+                intended += interval;
+            }
+        } catch( IOException e ) {
+            failed( e );
+        }
+    }
+
+    private void receive() {
+        ByteBuffer in = ByteBuffer.allocateDirect( options.size );
+
+        try {
+            while ( running ) {
+                receive( in );
+
+                window.release();
+            }
+        } catch( IOException e ) {
+            failed( e );
+        }
+    }
+
+    /** @return The time the message is stamped with, which is when it was meant to be sent if sending at a rate */
+    private long pace( long intended ) {
+        if ( 0 == interval ) {
+            return System.nanoTime();
+        }
+
+        long now;
+
+        while ( ( now = System.nanoTime() ) < intended ) {
+            LockSupport.parkNanos( intended - now );
+        }
+
+        return intended;
+    }
+
+    private void send( ByteBuffer out, long stamp ) throws IOException {
+        out.clear();
+        out.putLong( 0, stamp );
+
+        while ( out.hasRemaining() ) {
+            channel.write( out );
+        }
+    }
+
+    private void receive( ByteBuffer in ) throws IOException {
+        in.clear();
+
+        while ( in.hasRemaining() ) {
+            if ( channel.read( in ) < 0 ) {
+                throw new EOFException( "connection closed by server" );
+            }
+        }
+
+        if ( recording ) {
+            histogram.recordValue( Math.min( System.nanoTime() - in.getLong( 0 ), HIGHEST_LATENCY ) );
+            received++;
+        }
+    }
+
+    private void failed( IOException e ) {
+        if ( running ) {
+            failure = e;
+        }
+    }
+}
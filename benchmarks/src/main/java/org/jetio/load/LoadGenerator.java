@@ -0,0 +1,173 @@
+package org.jetio.load;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.jetio.Configuration;
+import org.jetio.JetIO;
+import org.jetio.Session;
+import org.jetio.codec.FixedLengthFrameDecoder;
+import org.jetio.codec.FrameHandler;
+
+/**
+ * Opens a number of connections to a JetIO instance that echoes fixed-size messages, drives them with a
+ * {@link MessagePattern}, and reports throughput along with latency percentiles. Unless given a
+ * {@code -target=host:port}, an echo server is started in-process.
+ *
+ * Give a {@code -rate} to reproduce production-like latency, as only a fixed rate lets stalls be accounted for
+ * properly. See {@link LoadConnection}.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class LoadGenerator {
+    private final LoadOptions options;
+
+    public LoadGenerator( LoadOptions options ) {
+        this.options = options;
+    }
+
+    public static void main( String... args ) throws Exception {
+        LoadOptions options;
+
+        try {
+            options = LoadOptions.parse( args );
+        } catch( IllegalArgumentException e ) {
+            System.err.println( e.getMessage() );
+            System.err.println( "options: -connections -size -rate -pattern=RequestResponse|Streaming -window "
+                                + "-warmup -duration -target=host:port -selectors -distribution" );
+            System.exit( 1 );
+
+            return;
+        }
+
+        new LoadGenerator( options ).run( System.out );
+    }
+
+    public void run( PrintStream out ) throws IOException, InterruptedException {
+        JetIO server = null;
+        InetSocketAddress target = options.target;
+
+        if ( null == target ) {
+            target = new InetSocketAddress( "localhost", freePort() );
+            server = startEchoServer( target );
+        }
+
+        List<LoadConnection> connections = new ArrayList<LoadConnection>();
+
+        try {
+            for ( int i = 0; i < options.connections; i++ ) {
+                connections.add( new LoadConnection( i, options, target ) );
+            }
+
+            out.println( options );
+
+            for ( LoadConnection connection : connections ) {
+                connection.start();
+            }
+
+            Thread.sleep( TimeUnit.SECONDS.toMillis( options.warmupSeconds ) );
+
+            for ( LoadConnection connection : connections ) {
+                connection.startRecording();
+            }
+
+            long start = System.nanoTime();
+
+            Thread.sleep( TimeUnit.SECONDS.toMillis( options.durationSeconds ) );
+
+            long elapsed = System.nanoTime() - start;
+
+            for ( LoadConnection connection : connections ) {
+                connection.stop();
+            }
+
+            report( out, connections, elapsed );
+        } finally {
+            for ( LoadConnection connection : connections ) {
+                connection.stop();
+            }
+
+            if ( null != server ) {
+                server.dispose();
+            }
+        }
+    }
+
+    private void report( PrintStream out, List<LoadConnection> connections, long elapsed ) {
+        Histogram latency = new Histogram( TimeUnit.MINUTES.toNanos( 1 ), 3 );
+        long received = 0;
+
+        for ( LoadConnection connection : connections ) {
+            if ( null != connection.failure() ) {
+                out.println( "connection failed: " + connection.failure() );
+            }
+
+            latency.add( connection.histogram() );
+            received += connection.received();
+        }
+
+        double seconds = elapsed / (double) TimeUnit.SECONDS.toNanos( 1 );
+
+        out.printf( "%d messages in %.1fs, %.0f messages/s%n", received, seconds, received / seconds );
+        out.printf( "latency (us) p50=%.1f p99=%.1f p99.9=%.1f max=%.1f%s%n",
+                    micros( latency.getValueAtPercentile( 50 ) ),
+                    micros( latency.getValueAtPercentile( 99 ) ),
+                    micros( latency.getValueAtPercentile( 99.9 ) ),
+                    micros( latency.getMaxValue() ),
+                    0 == options.rate ? " (closed loop, not corrected for coordinated omission)" : "" );
+
+        if ( options.distribution ) {
+            latency.outputPercentileDistribution( out, 1000.0 );
+        }
+    }
+
+    private JetIO startEchoServer( InetSocketAddress address ) throws IOException {
+        Configuration config = new Configuration();
+
+        config.setName( "load-echo" );
+        config.setBindAddress( address );
+        config.setReadUponConnect( true );
+        config.setTcpNoDelay( true );
+        config.setSelectorCount( options.selectors );
+
+        JetIO io = new JetIO( new FixedLengthFrameDecoder( new Echo(), options.size ), config );
+
+        io.start();
+
+        return io;
+    }
+
+    private static double micros( long nanos ) {
+        return nanos / 1000.0;
+    }
+
+    private static int freePort() throws IOException {
+        ServerSocket socket = new ServerSocket( 0 );
+
+        try {
+            return socket.getLocalPort();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /** Writes each frame straight back */
+    private static class Echo implements FrameHandler {
+        @Override
+        public void frame( Session session, ByteBuffer frame ) {
+            ByteBuffer buffer = session.buffers().acquire( frame.remaining() );
+
+            buffer.put( frame );
+            buffer.flip();
+
+            session.write( buffer );
+        }
+    }
+}
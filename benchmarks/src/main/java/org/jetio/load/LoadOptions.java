@@ -0,0 +1,85 @@
+package org.jetio.load;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Options for a {@link LoadGenerator} run, parsed from {@code -name=value} arguments
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class LoadOptions {
+    /** Number of connections to open */
+    int connections = 16;
+    /** Size of each message in bytes, including the 8 byte timestamp that leads it */
+    int size = 64;
+    /** Messages per second to send on each connection. 0 sends as fast as the pattern allows. */
+    int rate;
+    MessagePattern pattern = MessagePattern.RequestResponse;
+    /** Most messages awaiting their echo on a streaming connection when sending as fast as possible */
+    int window = 64;
+    long warmupSeconds = 5;
+    long durationSeconds = 30;
+    /** Where to connect to. If not given, an echo server is started in-process. */
+    InetSocketAddress target;
+    /** Selectors for the in-process echo server */
+    int selectors = 1;
+    /** Print the full percentile distribution, not just the summary */
+    boolean distribution;
+
+    static LoadOptions parse( String... args ) {
+        LoadOptions options = new LoadOptions();
+
+        for ( String arg : args ) {
+            int equals = arg.indexOf( '=' );
+
+            if ( !arg.startsWith( "-" ) || equals < 0 ) {
+                throw new IllegalArgumentException( "expected -name=value, not " + arg );
+            }
+
+            options.set( arg.substring( 1, equals ), arg.substring( equals + 1 ) );
+        }
+
+        if ( options.size < 8 ) {
+            throw new IllegalArgumentException( "size must be at least 8 bytes, to carry a timestamp" );
+        } else if ( options.connections < 1 || options.window < 1 ) {
+            throw new IllegalArgumentException( "connections and window must be positive" );
+        }
+
+        return options;
+    }
+
+    private void set( String name, String value ) {
+        if ( "connections".equals( name ) ) {
+            connections = Integer.parseInt( value );
+        } else if ( "size".equals( name ) ) {
+            size = Integer.parseInt( value );
+        } else if ( "rate".equals( name ) ) {
+            rate = Integer.parseInt( value );
+        } else if ( "pattern".equals( name ) ) {
+            pattern = MessagePattern.valueOf( value );
+        } else if ( "window".equals( name ) ) {
+            window = Integer.parseInt( value );
+        } else if ( "warmup".equals( name ) ) {
+            warmupSeconds = Long.parseLong( value );
+        } else if ( "duration".equals( name ) ) {
+            durationSeconds = Long.parseLong( value );
+        } else if ( "target".equals( name ) ) {
+            int colon = value.lastIndexOf( ':' );
+
+            target = new InetSocketAddress( value.substring( 0, colon ), Integer.parseInt( value.substring( colon + 1 ) ) );
+        } else if ( "selectors".equals( name ) ) {
+            selectors = Integer.parseInt( value );
+        } else if ( "distribution".equals( name ) ) {
+            distribution = Boolean.parseBoolean( value );
+        } else {
+            throw new IllegalArgumentException( "unknown option " + name );
+        }
+    }
+
+    @Override
+    public String toString() {
+        return connections + " connections, " + pattern + " of " + size + " byte messages at "
+               + ( 0 == rate ? "full speed" : rate + "/s per connection" )
+               + ( MessagePattern.Streaming == pattern && 0 == rate ? " with a window of " + window : "" );
+    }
+}
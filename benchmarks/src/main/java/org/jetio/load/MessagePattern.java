@@ -0,0 +1,13 @@
+package org.jetio.load;
+
+/**
+ * How the {@link LoadGenerator} drives each connection
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public enum MessagePattern {
+    /** Send a message, then wait for its echo before sending the next */
+    RequestResponse,
+    /** Keep sending without waiting on echoes, which are read back as they arrive */
+    Streaming
+}
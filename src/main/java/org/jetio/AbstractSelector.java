@@ -5,11 +5,12 @@ import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jetio.lifecycle.Lifecycle;
+import org.jetio.metrics.Histogram;
+import org.jetio.metrics.Metrics;
 import org.jetlang.channels.Channel;
 import org.jetlang.core.Callback;
 import org.slf4j.Logger;
@@ -20,7 +21,10 @@ abstract class AbstractSelector implements Callback<Event>, Runnable, Lifecycle
     @SuppressWarnings( { "NonConstantLogger" } )
     protected final Logger logger = LoggerFactory.getLogger( getClass() );
 
-    private final List<Session> toAdd = Collections.synchronizedList( new ArrayList<Session>() );
+    /** Sessions waiting to be added, swapped with {@link #adding} by the selector thread so neither is reallocated */
+    private List<Session> toAdd = new ArrayList<Session>();
+    private List<Session> adding = new ArrayList<Session>();
+    private final Object addLock = new Object();
 
     private final Channel<DataEvent<IOException>> failed;
     protected final SelectionOp op;
@@ -28,17 +32,33 @@ abstract class AbstractSelector implements Callback<Event>, Runnable, Lifecycle
     private final Thread thread;
     protected final Selector selector;
     private final AtomicBoolean waking = new AtomicBoolean( false );
-
-    AbstractSelector( SelectionOp op, Configuration config, Channel<DataEvent<IOException>> failed )
+    private final Histogram loopTime;
+    private final Histogram selectedKeyCount;
+    private final SelectedKeys selectedKeys = new SelectedKeys();
+    /** True if the selector adds straight to {@link #selectedKeys} */
+    private final boolean selectedKeysInstalled;
+
+    AbstractSelector( SelectionOp op,
+                      int index,
+                      Configuration config,
+                      Channel<DataEvent<IOException>> failed,
+                      Metrics metrics )
         throws IOException
     {
         this.op = op;
         this.config = config;
 
         this.failed = failed;
+        this.loopTime = metrics.histogram( op + "." + Metrics.SELECT_LOOP );
+        this.selectedKeyCount = metrics.histogram( op + "." + Metrics.SELECTED_KEYS );
 
         this.selector = Selector.open();
-        this.thread = new Thread( this, op + " " + this.config.getName() + "-" + config.getCounter() );
+        this.selectedKeysInstalled = selectedKeys.install( selector );
+
+        if ( !selectedKeysInstalled ) {
+            logger.debug( "unable to replace the selected-key set of {}, will iterate it instead", selector );
+        }
+        this.thread = new Thread( this, op + "-" + index + " " + this.config.getName() + "-" + config.getCounter() );
     }
 
     /**
@@ -53,15 +73,23 @@ abstract class AbstractSelector implements Callback<Event>, Runnable, Lifecycle
     public void onMessage( Event event ) {
         Session session = event.session();
 
-        logger.debug( "adding {} to {} selector queue", session, op );
+        if ( logger.isDebugEnabled() ) {
+            logger.debug( "adding {} to {} selector queue", session, op );
+        }
 
-        toAdd.add( session );
+        synchronized( addLock ) {
+            toAdd.add( session );
+        }
 
         if ( waking.compareAndSet( false, true ) ) {
             selector.wakeup();
         }
     }
 
+    /** Called once all of the keys selected in a pass have been {@link #selected handled} */
+    protected void selectedAll() {
+    }
+
     protected abstract void addToSelector( Session session ) throws IOException;
 
     @Override
@@ -81,39 +109,74 @@ abstract class AbstractSelector implements Callback<Event>, Runnable, Lifecycle
                 break;
             }
 
+            long start = System.nanoTime();
+
             processAddQueue();
 
-            for ( SelectionKey key : selector.selectedKeys() ) {
+            if ( !selectedKeysInstalled ) {
+                selectedKeys.gather( selector.selectedKeys() );
+            }
+
+            int count = selectedKeys.size();
+
+            selectedKeyCount.record( count );
+
+            for ( int i = 0; i < count; i++ ) {
+                SelectionKey key = selectedKeys.get( i );
                 Session session = (Session) key.attachment();
 
+                // The selector can't take a key that was cancelled after being selected back out of our set
+                if ( !key.isValid() ) {
+                    continue;
+                }
+
                 try {
                     selected( key, session );
+                } catch( CancelledKeyException e ) {
+                    logger.debug( "Key was cancelled while handling selection, ignoring", e );
                 } catch( IOException e ) {
                     failed.publish( new DataEvent<IOException>( session, e ) );
                 }
             }
+
+            // Keys that stay registered would otherwise be handled again on every pass
+            selectedKeys.reset();
+
+            selectedAll();
+
+            loopTime.record( System.nanoTime() - start );
         }
 
         logger.debug( "{} selector thread exiting...", op );
     }
 
     private void processAddQueue() {
-        Session[] sessions;
+        synchronized( addLock ) {
+            List<Session> added = toAdd;
 
-        synchronized( toAdd ) {
-            sessions = toAdd.toArray( new Session[toAdd.size()] );
-            toAdd.clear();
+            toAdd = adding;
+            adding = added;
 
             waking.set( false );
         }
 
-        for ( Session session : sessions ) {
+        for ( int i = 0; i < adding.size(); i++ ) {
+            Session session = adding.get( i );
+
             try {
                 addToSelector( session );
+            } catch( CancelledKeyException e ) {
+                // Another thread cancelled the session's key, which stays registered until the next select. Try again
+                // once that has happened, waking the selector so that it happens right away.
+                logger.debug( "Key was cancelled before being registered again, retrying", e );
+
+                onMessage( session.event() );
             } catch( IOException e ) {
                 failed.publish( new DataEvent<IOException>( session, e ) );
             }
         }
+
+        adding.clear();
     }
 
     @Override
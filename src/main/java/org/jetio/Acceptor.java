@@ -1,17 +1,25 @@
 package org.jetio;
 
 import java.io.IOException;
-import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 
 import org.jetio.lifecycle.Lifecycle;
+import org.jetio.util.ReusePort;
 import org.jetlang.channels.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Accept new connections
+ * Accept new connections. Each wakeup drains every connection waiting in the backlog, rather than one, handing those
+ * that are {@link Admission admitted} on as new sessions. While admission is paused, connections are left in the
+ * backlog, and whether it still is gets checked every {@link Configuration#getOverloadCheckInterval() interval}.
+ *
+ * Several acceptors can either share one listening socket, or, with {@link Configuration#isReusePort()}, each bind
+ * their own to the same address, leaving the kernel to spread new connections across them.
  *
  * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
  */
@@ -20,11 +28,29 @@ class Acceptor implements Runnable, Lifecycle {
 
     private final Configuration config;
     private final SessionFactory sessionFactory;
+    private final Admission admission;
     private final Thread thread;
     private final ServerSocketChannel ssc;
+    /** True if this acceptor opened {@link #ssc}, and so binds and closes it */
+    private final boolean listener;
+    private final Selector selector;
+    private SelectionKey key;
     private final Publisher<Event> newConnections;
 
-    Acceptor( Configuration config, Publisher<Event> newConnections, SessionFactory sessionFactory )
+    /**
+     * @param index          Index of this acceptor
+     * @param shared         Acceptor whose listening socket to share, or null to open one
+     * @param config         Configuration
+     * @param newConnections Where new sessions go
+     * @param sessionFactory Factory for new sessions
+     * @param admission      Whether new connections may become sessions
+     */
+    Acceptor( int index,
+              Acceptor shared,
+              Configuration config,
+              Publisher<Event> newConnections,
+              SessionFactory sessionFactory,
+              Admission admission )
         throws IOException
     {
         if ( null == config.getBindAddress() ) {
@@ -34,14 +60,26 @@ class Acceptor implements Runnable, Lifecycle {
         this.config = config;
         this.newConnections = newConnections;
         this.sessionFactory = sessionFactory;
+        this.admission = admission;
 
-        this.ssc = ServerSocketChannel.open();
-        this.thread = new Thread( this, "accept " + this.config.getName() + "-" + config.getCounter() );
+        this.listener = null == shared;
+        this.ssc = listener ? ServerSocketChannel.open() : shared.ssc;
+        this.selector = Selector.open();
+        this.thread = new Thread( this, "accept-" + index + " " + this.config.getName() + "-" + config.getCounter() );
     }
 
     @Override
     public void start() throws IOException {
-        ssc.socket().bind( config.getBindAddress(), config.getBacklog() );
+        if ( listener ) {
+            if ( config.isReusePort() ) {
+                ReusePort.enable( ssc );
+            }
+
+            ssc.socket().bind( config.getBindAddress(), config.getBacklog() );
+        }
+
+        ssc.configureBlocking( false );
+        key = ssc.register( selector, SelectionKey.OP_ACCEPT );
 
         thread.start();
     }
@@ -58,26 +96,80 @@ class Acceptor implements Runnable, Lifecycle {
 
             Thread.currentThread().interrupt();
         }
+
+        if ( listener ) {
+            try {
+                ssc.close();
+            } catch( IOException e ) {
+                logger.warn( "Unable to close listening socket", e );
+            }
+        }
     }
 
     @Override
     public void run() {
         try {
             while ( !Thread.interrupted() ) {
-                try {
-                    SocketChannel channel = ssc.accept();
-
-                    logger.debug( "accepted {}", channel );
+                if ( admission.isPaused() ) {
+                    key.interestOps( 0 );
+                    selector.select( config.getOverloadCheckInterval() );
+                } else {
+                    key.interestOps( SelectionKey.OP_ACCEPT );
+                    selector.select();
+                }
 
-                    channel.socket().setTcpNoDelay( this.config.isTcpNoDelay() );
+                selector.selectedKeys().clear();
 
-                    newConnections.publish( new Event( sessionFactory.create( channel ) ) );
-                } catch( ClosedByInterruptException e ) {
-                    logger.debug( "Thread interrupted, exiting", e );
+                if ( Thread.interrupted() ) {
+                    logger.debug( "interrupted..." );
+                    break;
                 }
+
+                acceptWaiting();
             }
+        } catch( ClosedChannelException e ) {
+            // Also covers the listening socket being closed by an interrupt of another acceptor sharing it
+            logger.debug( "Listening socket closed, exiting", e );
         } catch( IOException e ) {
             logger.error( "Exception accepting new connection", e );
+        } finally {
+            try {
+                selector.close();
+            } catch( IOException e ) {
+                logger.warn( "Unable to close accept selector", e );
+            }
+        }
+    }
+
+    /** Accept until the backlog is empty, or another acceptor sharing the listening socket has taken the rest */
+    private void acceptWaiting() throws IOException {
+        SocketChannel channel;
+
+        while ( !admission.isPaused() && null != ( channel = ssc.accept() ) ) {
+            if ( logger.isDebugEnabled() ) {
+                logger.debug( "accepted {}", channel );
+            }
+
+            if ( !admission.admit( channel ) ) {
+                logger.debug( "rejected {}", channel );
+
+                channel.close();
+                continue;
+            }
+
+            try {
+                channel.socket().setTcpNoDelay( this.config.isTcpNoDelay() );
+            } catch( IOException e ) {
+                // Reset before we got to it, which is no reason to stop accepting the rest
+                logger.debug( "Unable to configure accepted connection, closing", e );
+
+                // It was counted when admitted, and will never have a closed event to let go of it
+                admission.release( channel );
+                channel.close();
+                continue;
+            }
+
+            newConnections.publish( sessionFactory.accepted( channel ).event() );
         }
     }
 }
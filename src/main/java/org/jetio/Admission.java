@@ -0,0 +1,129 @@
+package org.jetio;
+
+import java.net.InetAddress;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetio.metrics.Counter;
+import org.jetio.metrics.Metrics;
+import org.jetlang.core.Callback;
+
+/**
+ * Decide whether newly accepted connections become sessions, holding the number of sessions, overall and per remote
+ * address, within their configured limits, and turning connections away while the workers are overloaded.
+ *
+ * Sessions are counted as they are admitted, and let go of as their closed events arrive.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class Admission implements Callback<Event> {
+    private final int maxConnections;
+    private final int maxConnectionsPerAddress;
+    private final Overload overload;
+    private final AtomicInteger sessions = new AtomicInteger();
+    /** Sessions per remote address, only tracked when limited */
+    private final Map<InetAddress, int[]> addresses = new HashMap<InetAddress, int[]>();
+    private final Counter rejected;
+    private volatile boolean overloaded;
+
+    Admission( Configuration config, Metrics metrics ) {
+        this.maxConnections = config.getMaxConnections();
+        this.maxConnectionsPerAddress = config.getMaxConnectionsPerAddress();
+        this.overload = config.getOverload();
+        this.rejected = metrics.counter( Metrics.REJECTED );
+    }
+
+    /**
+     * Check if accepting should pause
+     *
+     * @return True if new connections should be left in the backlog for now
+     */
+    boolean isPaused() {
+        return overloaded && Overload.Pause == overload;
+    }
+
+    void setOverloaded( boolean overloaded ) {
+        this.overloaded = overloaded;
+    }
+
+    /**
+     * Admit a newly accepted connection, counting it against the limits. A connection that isn't admitted is counted
+     * as rejected, and should be closed.
+     *
+     * @param channel Accepted connection
+     *
+     * @return True if the connection may become a session
+     */
+    boolean admit( SocketChannel channel ) {
+        if ( overloaded && Overload.Reject == overload ) {
+            return reject();
+        }
+
+        if ( sessions.incrementAndGet() > maxConnections && maxConnections > 0 ) {
+            sessions.decrementAndGet();
+
+            return reject();
+        }
+
+        if ( maxConnectionsPerAddress > 0 ) {
+            InetAddress address = channel.socket().getInetAddress();
+
+            synchronized( addresses ) {
+                int[] count = addresses.get( address );
+
+                if ( null == count ) {
+                    addresses.put( address, new int[]{ 1 } );
+                } else if ( count[0] < maxConnectionsPerAddress ) {
+                    count[0]++;
+                } else {
+                    sessions.decrementAndGet();
+
+                    return reject();
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private boolean reject() {
+        rejected.increment();
+
+        return false;
+    }
+
+    /** Let go of a session that has closed */
+    @Override
+    public void onMessage( Event event ) {
+        // Connections we made ourselves were never admitted
+        if ( event.session().isOutbound() ) {
+            return;
+        }
+
+        // A connected socket still knows who it was connected to after being closed
+        release( event.session().channel() );
+    }
+
+    /**
+     * Let go of an admitted connection, either as its session closes or because it never became one
+     *
+     * @param channel Admitted connection
+     */
+    void release( SocketChannel channel ) {
+        sessions.decrementAndGet();
+
+        if ( maxConnectionsPerAddress > 0 ) {
+            InetAddress address = channel.socket().getInetAddress();
+
+            synchronized( addresses ) {
+                int[] count = addresses.get( address );
+
+                if ( null != count && 0 == --count[0] ) {
+                    addresses.remove( address );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package org.jetio;
+
+/**
+ * Thrown when a buffer is acquired from a pool that has reached its {@link Configuration#getMaxBufferMemory() ceiling},
+ * according to its {@link BufferExhaustion} policy.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class BufferExhaustedException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public BufferExhaustedException( String message ) {
+        super( message );
+    }
+}
@@ -0,0 +1,18 @@
+package org.jetio;
+
+/**
+ * What happens when a buffer is needed and the pool has reached its {@link Configuration#getMaxBufferMemory() ceiling}
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public enum BufferExhaustion {
+    /**
+     * Wait for another buffer to be released, up to the {@link Configuration#getBufferExhaustionTimeout() timeout},
+     * then fail with a {@link BufferExhaustedException}
+     */
+    Block,
+    /** Fail right away with a {@link BufferExhaustedException}. A session reading at the time is closed. */
+    Fail,
+    /** Hand out a heap buffer, which is left for the garbage collector when released */
+    Heap
+}
@@ -0,0 +1,29 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Variant of {@link MessageReader} that is handed the first chunk of a message as the pooled buffer it was read into,
+ * rather than a copy of it.
+ *
+ * The buffer becomes the property of the reader, and it <b>MUST</b> be given back, either by releasing it to
+ * {@link Session#buffers()} once done with it, or by passing it to {@link Session#write(ByteBuffer...)}, which
+ * releases buffers once they have been written.
+ *
+ * It should be re-entrant and <b>WILL</b> be called by multiple threads.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public interface BufferMessageReader {
+
+    /**
+     * Read a message off of the session
+     *
+     * @param session     Session to read from
+     * @param initialData Data already read from the session, ready to be read from
+     *
+     * @throws IOException if the message could not be read, which will cause the session to be closed
+     */
+    void readMessage( Session session, ByteBuffer initialData ) throws IOException;
+}
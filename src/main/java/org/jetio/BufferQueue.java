@@ -1,74 +1,695 @@
 package org.jetio;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A queue for managing slices of a direct {@link ByteBuffer}
+ * A pool for managing slices of a direct {@link ByteBuffer}
+ *
+ * Slices come in power-of-two size classes, between {@link Configuration#getBufferMinimumSize()} and
+ * {@link Configuration#getBufferMaximumSize()}. Each class grows by carving a whole
+ * {@link Configuration#getBufferAllocationSize() chunk} of direct memory into slices of its size.
+ *
+ * Each thread caches a couple of magazines of slices per class, so acquiring and releasing normally touches nothing
+ * shared. Only when a thread's magazines run dry, or fill up, does it exchange a whole magazine with the class's shared
+ * depot. Slices cached by a thread that dies are lost to the pool, so with
+ * {@link Configuration#isVirtualWorkerThreads() virtual worker threads}, which live for a single task, there are no
+ * thread caches and slices are exchanged with the depot one at a time.
+ *
+ * The pool may grow up to an optional ceiling. Once there, a class that is out of slices will borrow from larger
+ * classes, and failing that, what happens is up to the {@link BufferExhaustion} policy. While a thread is
+ * {@link BufferExhaustion#Block blocked} waiting for a slice, released slices skip the thread caches so that it sees
+ * them, and go back to the caches once nobody is waiting. Chunks whose slices are all
+ * sitting idle in a depot can be {@link #trim() trimmed}, after which their memory is reclaimed by the garbage
+ * collector.
  *
  * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
  */
-class BufferQueue implements BufferSource {
+class BufferQueue implements SizedBufferSource {
     private static final Logger logger = LoggerFactory.getLogger( BufferQueue.class );
 
-    private final BlockingQueue<ByteBuffer> available = new LinkedBlockingQueue<ByteBuffer>();
-    private final Object createLock = new Object();
+    static final int MAGAZINE_SIZE = 32;
+
+    private static final long EXHAUSTED_WAIT = TimeUnit.MICROSECONDS.toNanos( 100 );
 
-    private final int sliceSize;
+    private final SizeClass[] classes;
+    /** Held while growing or trimming, guards {@link #chunks} */
+    private final AtomicBoolean growing = new AtomicBoolean( false );
+    /** Every chunk that has been allocated */
+    private final List<Chunk> chunks = new ArrayList<Chunk>();
+    private volatile int chunkCount;
+    /** Threads waiting for a slice under the {@link BufferExhaustion#Block} policy */
+    private final AtomicInteger waiting = new AtomicInteger();
+    /** Bumped when trimming, telling threads to hand their cached slices back to the depots */
+    private volatile int generation;
+    private long drawsAtLastTrim = -1;
+
+    /** False when threads are too short-lived for their caches to be worth having, or to leave them behind */
+    private final boolean threadCaches;
+    private final ThreadLocal<Caches> caches = new ThreadLocal<Caches>() {
+        @Override
+        protected Caches initialValue() {
+            return new Caches( classes.length, generation );
+        }
+    };
+
+    private final int minimumShift;
+    private final int maximumSize;
+    private final int defaultClass;
     private final int allocationSize;
-    private final int slices;
+    private final long maxChunks;
+    private final BufferExhaustion exhaustion;
+    private final long exhaustionTimeout;
+
+    BufferQueue( Configuration config ) {
+        int minimum = config.getBufferMinimumSize();
+
+        this.maximumSize = config.getBufferMaximumSize();
+        this.allocationSize = config.getBufferAllocationSize();
+
+        if ( !isPowerOfTwo( minimum ) || !isPowerOfTwo( maximumSize ) || minimum > maximumSize ) {
+            throw new IllegalArgumentException( "Buffer sizes must be powers of two, the minimum below the maximum" );
+        } else if ( allocationSize % maximumSize != 0 ) {
+            throw new IllegalArgumentException( "Allocation size is not an even multiple of maximum buffer size" );
+        } else if ( config.getMaxBufferMemory() > 0 && config.getMaxBufferMemory() < allocationSize ) {
+            throw new IllegalArgumentException( "Maximum buffer memory is less than a single allocation" );
+        }
+
+        this.minimumShift = Integer.numberOfTrailingZeros( minimum );
+        this.classes = new SizeClass[Integer.numberOfTrailingZeros( maximumSize ) - minimumShift + 1];
+
+        for ( int i = 0; i < classes.length; i++ ) {
+            classes[i] = new SizeClass( minimum << i, allocationSize / ( minimum << i ) );
+        }
+
+        this.defaultClass = indexOf( config.getBufferSlizeSize() );
 
-    BufferQueue( int sliceSize, int allocationSize ) {
-        if ( allocationSize % sliceSize != 0 ) {
-            throw new IllegalArgumentException( "Allocation size is not an even multiple of slice size" );
+        if ( defaultClass < 0 ) {
+            throw new IllegalArgumentException( "Slice size must be a power of two between the minimum and maximum" );
         }
 
-        this.sliceSize = sliceSize;
-        this.allocationSize = allocationSize;
-        this.slices = allocationSize / sliceSize;
+        this.maxChunks = config.getMaxBufferMemory() > 0 ? config.getMaxBufferMemory() / allocationSize : Long.MAX_VALUE;
+        this.exhaustion = config.getBufferExhaustion();
+        this.exhaustionTimeout = TimeUnit.MILLISECONDS.toNanos( config.getBufferExhaustionTimeout() );
+        this.threadCaches = !config.isVirtualWorkerThreads();
     }
 
     @Override
     public ByteBuffer acquire() {
-        ByteBuffer buffer = available.poll();
+        return acquireFrom( defaultClass );
+    }
 
-        if ( null != buffer ) {
-            logger.debug( "acquired buffer from queue" );
+    @Override
+    public ByteBuffer acquire( int minCapacity ) {
+        if ( minCapacity > maximumSize ) {
+            throw new IllegalArgumentException( minCapacity + " exceeds the largest buffer size of " + maximumSize );
+        }
 
-            return buffer;
+        int index = minCapacity <= 1 << minimumShift
+                    ? 0
+                    : 32 - Integer.numberOfLeadingZeros( minCapacity - 1 ) - minimumShift;
+
+        return acquireFrom( index );
+    }
+
+    private ByteBuffer acquireFrom( int index ) {
+        Caches caches = threadCaches ? this.caches.get() : null;
+
+        if ( null != caches && caches.generation != generation ) {
+            retire( caches );
         }
 
-        synchronized( createLock ) {
+        ByteBuffer buffer = take( caches, index );
+
+        while ( null == buffer && grow( index ) ) {
+            buffer = take( caches, index );
+        }
+
+        return null == buffer ? acquireAtCeiling( caches, index ) : buffer;
+    }
+
+    /** Get a slice once the pool is at its ceiling and out of the class, according to the exhaustion policy */
+    private ByteBuffer acquireAtCeiling( Caches caches, int index ) {
+        long deadline = 0;
+
+        try {
             while ( true ) {
-                buffer = available.poll();
+                ByteBuffer buffer = take( caches, index );
 
                 if ( null != buffer ) {
-                    logger.debug( "acquired buffer while in create lock" );
-
                     return buffer;
                 }
 
-                logger.debug( "creating more buffers" );
+                // A larger buffer beats none at all
+                for ( int i = index + 1; i < classes.length; i++ ) {
+                    if ( null != ( buffer = take( caches, i ) ) ) {
+                        return buffer;
+                    }
+                }
+
+                switch( exhaustion ) {
+                    case Heap:
+                        return ByteBuffer.allocate( classes[index].size );
+                    case Block:
+                        if ( 0 == deadline ) {
+                            deadline = System.nanoTime() + exhaustionTimeout;
 
-                ByteBuffer directBuffer = ByteBuffer.allocateDirect( allocationSize );
+                            // Have slices released to the overflow while we wait, rather than into thread caches
+                            waiting.incrementAndGet();
+                        } else if ( System.nanoTime() - deadline >= 0 ) {
+                            throw exhausted( index, " after waiting "
+                                                    + TimeUnit.NANOSECONDS.toMillis( exhaustionTimeout ) + "ms" );
+                        }
 
-                for ( int i = 0; i < slices; i++ ) {
-                    directBuffer.position( sliceSize * i );
-                    directBuffer.limit( directBuffer.position() + sliceSize );
+                        LockSupport.parkNanos( EXHAUSTED_WAIT );
 
-                    available.add( directBuffer.slice() );
+                        // The pool may have been trimmed, making room to grow again
+                        grow( index );
+                        break;
+                    default:
+                        throw exhausted( index, "" );
                 }
             }
+        } finally {
+            if ( 0 != deadline ) {
+                waiting.decrementAndGet();
+            }
+        }
+    }
+
+    /** Take a slice from the thread's cache, the depot, or the overflow, without growing */
+    private ByteBuffer take( Caches caches, int index ) {
+        SizeClass sizeClass = classes[index];
+
+        if ( null == caches ) {
+            return sizeClass.takeLoose();
+        }
+
+        Cache cache = caches.get( index, sizeClass );
+
+        while ( true ) {
+            ByteBuffer buffer = cache.acquire();
+
+            if ( null != buffer ) {
+                return buffer;
+            }
+
+            // Out locally, trade our empty magazine for a full one from the depot
+            Magazine magazine = sizeClass.full.poll();
+
+            if ( null == magazine ) {
+                return sizeClass.overflow.poll();
+            }
+
+            sizeClass.draws++;
+            sizeClass.empty.offer( cache.load( magazine ) );
+        }
+    }
+
+    @Override
+    public void release( ByteBuffer buffer ) {
+        int index = indexOf( buffer.capacity() );
+
+        if ( !buffer.isDirect() || index < 0 ) {
+            // Handed out when exhausted, or never ours to begin with
+            return;
+        }
+
+        SizeClass sizeClass = classes[index];
+
+        if ( !threadCaches || waiting.get() > 0 ) {
+            sizeClass.overflow.offer( buffer );
+
+            return;
+        } else if ( sizeClass.exhausted ) {
+            // Nobody is waiting on the overflow, so back to the magazines, and warn again if we run out again
+            sizeClass.exhausted = false;
+        }
+
+        Caches caches = this.caches.get();
+        Cache cache = caches.get( index, sizeClass );
+
+        while ( !cache.release( buffer ) ) {
+            // Full locally, trade our full magazine for an empty one from the depot
+            sizeClass.full.offer( cache.load( sizeClass.emptyMagazine() ) );
+        }
+
+        if ( caches.generation != generation ) {
+            retire( caches );
         }
     }
 
     @Override
     public void release( Collection<ByteBuffer> buffers ) {
-        available.addAll( buffers );
+        for ( ByteBuffer buffer : buffers ) {
+            release( buffer );
+        }
+    }
+
+    /** @return Bytes of direct memory currently allocated by the pool */
+    long allocated() {
+        return (long) allocationSize * chunkCount;
+    }
+
+    /** @return Bytes in slices that are sitting in the depots, a moving target while the pool is in use */
+    long pooled() {
+        long pooled = 0;
+
+        for ( SizeClass sizeClass : classes ) {
+            pooled += sizeClass.pooled();
+        }
+
+        return pooled;
+    }
+
+    /**
+     * Drop chunks whose slices are all back in the pool, if nothing has been drawn from it since the last time.
+     *
+     * @return Number of chunks released
+     */
+    int trimIfIdle() {
+        long seen = 0;
+
+        for ( SizeClass sizeClass : classes ) {
+            seen += sizeClass.draws;
+        }
+
+        if ( seen != drawsAtLastTrim ) {
+            drawsAtLastTrim = seen;
+
+            return 0;
+        }
+
+        return trim();
+    }
+
+    /**
+     * Drop chunks whose slices are all back in the pool. Threads are asked to return the slices they have cached, which
+     * they do the next time they use the pool, so those chunks may be dropped by a later trim.
+     *
+     * @return Number of chunks released
+     */
+    int trim() {
+        generation++;
+
+        if ( !growing.compareAndSet( false, true ) ) {
+            return 0;
+        }
+
+        int trimmed = 0;
+
+        try {
+            Map<ByteBuffer, Boolean> free = new IdentityHashMap<ByteBuffer, Boolean>();
+
+            for ( SizeClass sizeClass : classes ) {
+                sizeClass.drain( free );
+            }
+
+            for ( Iterator<Chunk> i = chunks.iterator(); i.hasNext(); ) {
+                Chunk chunk = i.next();
+
+                if ( chunk.isFree( free ) ) {
+                    for ( ByteBuffer slice : chunk.slices ) {
+                        free.remove( slice );
+                    }
+
+                    i.remove();
+                    trimmed++;
+                }
+            }
+
+            // Whatever is left goes back in the depots
+            for ( ByteBuffer slice : free.keySet() ) {
+                classes[indexOf( slice.capacity() )].restock( slice );
+            }
+
+            for ( SizeClass sizeClass : classes ) {
+                sizeClass.restocked();
+
+                if ( trimmed > 0 ) {
+                    sizeClass.exhausted = false;
+                }
+            }
+
+            if ( trimmed > 0 ) {
+                chunkCount = chunks.size();
+
+                logger.debug( "trimmed {} idle chunks, {} remain", trimmed, chunks.size() );
+            }
+        } finally {
+            growing.set( false );
+        }
+
+        return trimmed;
+    }
+
+    /**
+     * Carve a new direct allocation into slices for a class, unless someone else is already growing the pool
+     *
+     * @return False if the pool is at its ceiling
+     */
+    private boolean grow( int index ) {
+        SizeClass sizeClass = classes[index];
+
+        if ( !growing.compareAndSet( false, true ) ) {
+            while ( growing.get() && sizeClass.full.isEmpty() ) {
+                Thread.yield();
+            }
+
+            return true;
+        }
+
+        try {
+            if ( !sizeClass.full.isEmpty() ) {
+                return true;
+            } else if ( chunks.size() >= maxChunks ) {
+                if ( !sizeClass.exhausted ) {
+                    sizeClass.exhausted = true;
+
+                    logger.warn( "buffer pool exhausted at {} bytes, out of {} byte buffers",
+                                 allocated(), sizeClass.size );
+                }
+
+                return false;
+            }
+
+            logger.debug( "creating more {} byte buffers", sizeClass.size );
+
+            ByteBuffer directBuffer = ByteBuffer.allocateDirect( allocationSize );
+            Chunk chunk = new Chunk( sizeClass.slicesPerChunk );
+
+            for ( int i = 0; i < chunk.slices.length; i++ ) {
+                directBuffer.position( sizeClass.size * i );
+                directBuffer.limit( directBuffer.position() + sizeClass.size );
+
+                chunk.slices[i] = directBuffer.slice();
+
+                sizeClass.restock( chunk.slices[i] );
+            }
+
+            sizeClass.restocked();
+
+            chunks.add( chunk );
+            chunkCount = chunks.size();
+
+            return true;
+        } finally {
+            growing.set( false );
+        }
+    }
+
+    /** Return everything a thread has cached to the depots, as the pool has been trimmed since it last looked */
+    private void retire( Caches caches ) {
+        caches.generation = generation;
+
+        for ( int i = 0; i < classes.length; i++ ) {
+            if ( null != caches.byClass[i] ) {
+                classes[i].retire( caches.byClass[i] );
+            }
+        }
+    }
+
+    private BufferExhaustedException exhausted( int index, String detail ) {
+        return new BufferExhaustedException( "no " + classes[index].size + " byte buffers available, "
+                                             + allocated() + " bytes allocated" + detail );
+    }
+
+    /** @return Index of the class of the given size, or -1 if it isn't one of ours */
+    private int indexOf( int size ) {
+        if ( !isPowerOfTwo( size ) || size > maximumSize ) {
+            return -1;
+        }
+
+        int index = Integer.numberOfTrailingZeros( size ) - minimumShift;
+
+        return index < 0 ? -1 : index;
+    }
+
+    private static boolean isPowerOfTwo( int size ) {
+        return size > 0 && 0 == ( size & ( size - 1 ) );
+    }
+
+    /** Slices of one size, and the depot they are exchanged through */
+    private static class SizeClass {
+        /** Magazines that are full of slices */
+        private final Queue<Magazine> full = new ConcurrentLinkedQueue<Magazine>();
+        /** Magazines that are empty, so they needn't be allocated again */
+        private final Queue<Magazine> empty = new ConcurrentLinkedQueue<Magazine>();
+        /**
+         * Released slices go here rather than into thread caches while a thread is waiting for one, so that it sees
+         * them, and when there are no thread caches
+         */
+        private final Queue<ByteBuffer> overflow = new ConcurrentLinkedQueue<ByteBuffer>();
+        private final int size;
+        private final int slicesPerChunk;
+        /** Large slices come few to a chunk, so don't let a thread hoard too many of them */
+        private final int magazineSize;
+        /** Set on reaching the ceiling, so that it is warned about once, until slices are released again */
+        private volatile boolean exhausted;
+        /** Bumped as magazines are drawn from the depot. Only compared for change, so lost updates don't matter. */
+        private volatile long draws;
+        /** Magazine being filled while growing or trimming */
+        private Magazine restocking;
+
+        SizeClass( int size, int slicesPerChunk ) {
+            this.size = size;
+            this.slicesPerChunk = slicesPerChunk;
+            this.magazineSize = Math.max( 2, Math.min( MAGAZINE_SIZE, slicesPerChunk / 4 ) );
+        }
+
+        Magazine emptyMagazine() {
+            Magazine magazine = empty.poll();
+
+            return null == magazine ? new Magazine( magazineSize ) : magazine;
+        }
+
+        /** Take a slice without a thread cache, breaking open a magazine from the depot once the overflow is empty */
+        ByteBuffer takeLoose() {
+            ByteBuffer buffer = overflow.poll();
+
+            if ( null != buffer ) {
+                return buffer;
+            }
+
+            Magazine magazine = full.poll();
+
+            if ( null == magazine ) {
+                return null;
+            }
+
+            draws++;
+            buffer = magazine.pop();
+
+            ByteBuffer loose;
+
+            while ( null != ( loose = magazine.pop() ) ) {
+                overflow.offer( loose );
+            }
+
+            empty.offer( magazine );
+
+            return buffer;
+        }
+
+        void restock( ByteBuffer slice ) {
+            if ( null == restocking ) {
+                restocking = emptyMagazine();
+            }
+
+            if ( !restocking.push( slice ) ) {
+                full.offer( restocking );
+
+                restocking = emptyMagazine();
+                restocking.push( slice );
+            }
+        }
+
+        void restocked() {
+            if ( null != restocking ) {
+                full.offer( restocking );
+
+                restocking = null;
+            }
+        }
+
+        void drain( Map<ByteBuffer, Boolean> free ) {
+            Magazine magazine;
+            ByteBuffer buffer;
+
+            while ( null != ( magazine = full.poll() ) ) {
+                while ( null != ( buffer = magazine.pop() ) ) {
+                    free.put( buffer, Boolean.TRUE );
+                }
+
+                empty.offer( magazine );
+            }
+
+            while ( null != ( buffer = overflow.poll() ) ) {
+                free.put( buffer, Boolean.TRUE );
+            }
+        }
+
+        long pooled() {
+            long slices = overflow.size();
+
+            for ( Magazine magazine : full ) {
+                slices += magazine.count;
+            }
+
+            return slices * size;
+        }
+
+        void retire( Cache cache ) {
+            if ( !cache.loaded.isEmpty() ) {
+                full.offer( cache.loaded );
+                cache.loaded = emptyMagazine();
+            }
+
+            if ( !cache.previous.isEmpty() ) {
+                full.offer( cache.previous );
+                cache.previous = emptyMagazine();
+            }
+        }
+    }
+
+    /** A single direct allocation, carved into slices of one size */
+    private static class Chunk {
+        private final ByteBuffer[] slices;
+
+        Chunk( int slices ) {
+            this.slices = new ByteBuffer[slices];
+        }
+
+        boolean isFree( Map<ByteBuffer, Boolean> free ) {
+            for ( ByteBuffer slice : slices ) {
+                if ( !free.containsKey( slice ) ) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    /** A fixed-size stack of slices that moves between threads as a unit */
+    private static class Magazine {
+        private final ByteBuffer[] buffers;
+        private int count;
+
+        Magazine( int size ) {
+            this.buffers = new ByteBuffer[size];
+        }
+
+        ByteBuffer pop() {
+            if ( 0 == count ) {
+                return null;
+            }
+
+            ByteBuffer buffer = buffers[--count];
+            buffers[count] = null;
+
+            return buffer;
+        }
+
+        boolean push( ByteBuffer buffer ) {
+            if ( count == buffers.length ) {
+                return false;
+            }
+
+            buffers[count++] = buffer;
+
+            return true;
+        }
+
+        boolean isEmpty() {
+            return 0 == count;
+        }
+
+        boolean isFull() {
+            return count == buffers.length;
+        }
+    }
+
+    /** A thread's caches for each class, created as they are first used */
+    private static class Caches {
+        private final Cache[] byClass;
+        private int generation;
+
+        Caches( int classes, int generation ) {
+            this.byClass = new Cache[classes];
+            this.generation = generation;
+        }
+
+        Cache get( int index, SizeClass sizeClass ) {
+            Cache cache = byClass[index];
+
+            if ( null == cache ) {
+                cache = byClass[index] = new Cache( sizeClass.magazineSize );
+            }
+
+            return cache;
+        }
+    }
+
+    /** A thread's own magazines. Keeping a second one avoids trips to the depot when hovering around a boundary. */
+    private static class Cache {
+        private Magazine loaded;
+        private Magazine previous;
+
+        Cache( int magazineSize ) {
+            this.loaded = new Magazine( magazineSize );
+            this.previous = new Magazine( magazineSize );
+        }
+
+        ByteBuffer acquire() {
+            if ( loaded.isEmpty() && !previous.isEmpty() ) {
+                swap();
+            }
+
+            return loaded.pop();
+        }
+
+        boolean release( ByteBuffer buffer ) {
+            if ( loaded.isFull() && !previous.isFull() ) {
+                swap();
+            }
+
+            return loaded.push( buffer );
+        }
+
+        /**
+         * Load a magazine from the depot, retiring the previous one
+         *
+         * @return The retired magazine, to be returned to the depot
+         */
+        Magazine load( Magazine magazine ) {
+            Magazine retired = previous;
+
+            previous = loaded;
+            loaded = magazine;
+
+            return retired;
+        }
+
+        private void swap() {
+            Magazine magazine = loaded;
+
+            loaded = previous;
+            previous = magazine;
+        }
     }
 }
@@ -0,0 +1,56 @@
+package org.jetio;
+
+import org.jetio.lifecycle.Lifecycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically trim a {@link BufferQueue} of chunks that have been sitting idle
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class BufferTrimmer implements Runnable, Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger( BufferTrimmer.class );
+
+    private final Configuration config;
+    private final BufferQueue buffers;
+    private final Thread thread;
+
+    BufferTrimmer( Configuration config, BufferQueue buffers ) {
+        this.config = config;
+        this.buffers = buffers;
+
+        this.thread = new Thread( this, "trim " + config.getName() + "-" + config.getCounter() );
+    }
+
+    @Override
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void dispose() {
+        thread.interrupt();
+
+        try {
+            thread.join( config.getDisposalWaitTime() );
+        } catch( InterruptedException e ) {
+            logger.error( "Interrupted while waiting for trimming thread to complete", e );
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while ( !Thread.interrupted() ) {
+                Thread.sleep( config.getBufferIdleTime() );
+
+                buffers.trimIfIdle();
+            }
+        } catch( InterruptedException e ) {
+            logger.debug( "Thread interrupted, exiting", e );
+        }
+    }
+}
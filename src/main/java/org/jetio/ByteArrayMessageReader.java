@@ -0,0 +1,28 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Adapt a {@link MessageReader} to a {@link BufferMessageReader}, copying the initial data out of the pooled buffer
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class ByteArrayMessageReader implements BufferMessageReader {
+    private final MessageReader reader;
+
+    ByteArrayMessageReader( MessageReader reader ) {
+        this.reader = reader;
+    }
+
+    @Override
+    public void readMessage( Session session, ByteBuffer initialData ) throws IOException {
+        byte[] data = new byte[initialData.remaining()];
+
+        initialData.get( data );
+
+        session.buffers().release( initialData );
+
+        reader.readMessage( session, data );
+    }
+}
@@ -4,6 +4,8 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import org.jetio.metrics.Counter;
+import org.jetio.metrics.Metrics;
 import org.jetlang.channels.Publisher;
 import org.jetlang.core.Callback;
 import org.slf4j.Logger;
@@ -17,25 +19,20 @@ import org.slf4j.LoggerFactory;
 class CheckForReadReadiness implements Callback<Event> {
     private static final Logger logger = LoggerFactory.getLogger( CheckForReadReadiness.class );
 
-    private final ThreadLocal<ByteBuffer> readTestBuffer;
     private final Publisher<Event> addToReadSelector;
-    private final Publisher<DataEvent<byte[]>> read;
+    private final Publisher<DataEvent<ByteBuffer>> read;
     private final Publisher<DataEvent<IOException>> failed;
+    private final Counter bytesRead;
 
     CheckForReadReadiness( Publisher<Event> addToReadSelector,
-                           Publisher<DataEvent<byte[]>> read,
+                           Publisher<DataEvent<ByteBuffer>> read,
                            Publisher<DataEvent<IOException>> failed,
-                           final BufferSource buffers )
+                           Metrics metrics )
     {
         this.addToReadSelector = addToReadSelector;
         this.read = read;
         this.failed = failed;
-        this.readTestBuffer = new ThreadLocal<ByteBuffer>() {
-            @Override
-            protected ByteBuffer initialValue() {
-                return buffers.acquire();
-            }
-        };
+        this.bytesRead = metrics.counter( Metrics.BYTES_READ );
     }
 
     @Override
@@ -48,21 +45,43 @@ class CheckForReadReadiness implements Callback<Event> {
             }
         } catch( IOException e ) {
             failed.publish( new DataEvent<IOException>( session, e ) );
+        } catch( BufferExhaustedException e ) {
+            failed.publish( new DataEvent<IOException>( session, new IOException( "no buffer to read into", e ) ) );
         }
     }
 
     private boolean read( Session session ) throws IOException {
-        logger.debug( "attempting read on {}", session );
+        if ( logger.isDebugEnabled() ) {
+            logger.debug( "attempting read on {}", session );
+        }
+
+        // Read straight into one of the session's buffers, so it can be handed over without copying
+        ByteBuffer buffer = session.buffers().acquire();
+        int count;
+
+        try {
+            count = performRead( session, buffer );
+        } catch( IOException e ) {
+            session.buffers().release( buffer );
 
-        ByteBuffer buffer = readTestBuffer.get();
-        int count = performRead( session, buffer );
+            throw e;
+        }
 
         switch( count ) {
             case 0: // nothing yet
+                session.buffers().release( buffer );
+
                 return false;
             case -1: // EOF
+                session.buffers().release( buffer );
+
                 throw new EOFException();
             default:
+                bytesRead.add( count );
+
+                // The reader blocks until the whole message is in, which the read timeout puts a limit on
+                session.timeout().readStarted();
+
                 publishReadEvent( session, buffer, count );
 
                 return true;
@@ -72,25 +91,24 @@ class CheckForReadReadiness implements Callback<Event> {
     private static int performRead( Session session, ByteBuffer buffer ) throws IOException {
         session.setNonBlocking();
 
-        buffer.clear();
-
         return session.channel().read( buffer );
     }
 
-    private static byte[] toByteArray( ByteBuffer buffer, int count ) {
-        byte[] data = new byte[count];
+    private void publishReadEvent( Session session, ByteBuffer buffer, int count ) throws IOException {
+        if ( logger.isDebugEnabled() ) {
+            logger.debug( "{} is ready to read, {} bytes available", session, count );
+        }
 
         buffer.flip();
-        buffer.get( data, 0, count);
-
-        return data;
-    }
 
-    private void publishReadEvent( Session session, ByteBuffer buffer, int count ) throws IOException {
-        logger.debug( "{} is ready to read, {} bytes available", session, count );
+        try {
+            session.setBlocking();
+        } catch( IOException e ) {
+            session.buffers().release( buffer );
 
-        session.setBlocking();
+            throw e;
+        }
 
-        read.publish( new DataEvent<byte[]>( session, toByteArray( buffer, count ) ) );
+        read.publish( new DataEvent<ByteBuffer>( session, buffer ) );
     }
 }
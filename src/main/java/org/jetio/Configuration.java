@@ -5,6 +5,9 @@ import java.net.SocketAddress;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jetio.metrics.Metrics;
+import org.jetio.metrics.MetricsReporter;
+
 /**
  * Configuration parameters for JetIO
  *
@@ -17,12 +20,45 @@ public class Configuration {
     private int counter = COUNTER.getAndIncrement();
     private SocketAddress bindAddress;
     private int backlog;
+    private int acceptorCount = 1;
+    private boolean reusePort;
+    private int maxConnections;
+    private int maxConnectionsPerAddress;
+    private long overloadQueueWait;
+    private long overloadCheckInterval = 100;
+    private Overload overload = Overload.Pause;
+    private long idleTimeout;
+    private long readTimeout;
+    private long writeTimeout;
+    private long timerTick = 100;
+    private long connectTimeout;
+    private long reconnectDelay = TimeUnit.SECONDS.toMillis( 1 );
     private long disposalWaitTime = TimeUnit.SECONDS.toMillis( 5 );
     private boolean readUponConnect;
     private boolean tcpNoDelay;
     private int workerThreadCount = 100;
+    private boolean virtualWorkerThreads;
+    private int workerBatchTasks;
     private int bufferSlizeSize = 4096;
     private int bufferAllocationSize = 1048576;
+    private int bufferMinimumSize = 256;
+    private int bufferMaximumSize = 65536;
+    private int selectorCount = 1;
+    private SelectorAssignment selectorAssignment = SelectorAssignment.RoundRobin;
+    private boolean retainSelectionKeys;
+    private ExecutionEngine executionEngine = ExecutionEngine.Fibers;
+    private int laneCount = Runtime.getRuntime().availableProcessors();
+    private int writeQueueCapacity = 64;
+    private long writeHighWaterMark;
+    private long writeLowWaterMark;
+    private WriteBackpressure writeBackpressure = WriteBackpressure.Signal;
+    private long maxBufferMemory;
+    private BufferExhaustion bufferExhaustion = BufferExhaustion.Block;
+    private long bufferExhaustionTimeout = TimeUnit.SECONDS.toMillis( 1 );
+    private long bufferIdleTime = TimeUnit.MINUTES.toMillis( 1 );
+    private MetricsReporter metricsReporter;
+    private long metricsReportInterval = TimeUnit.MINUTES.toMillis( 1 );
+    private boolean jmxEnabled;
 
     /**
      * Get the name of this instance
@@ -40,7 +76,7 @@ public class Configuration {
     /**
      * Get the address to bind to
      *
-     * @return Address to bind to
+     * @return Address to bind to, or null to only make {@link JetIO#connect outbound} connections
      */
     public SocketAddress getBindAddress() {
         return bindAddress;
@@ -63,6 +99,183 @@ public class Configuration {
         this.backlog = backlog;
     }
 
+    /**
+     * Get the number of threads accepting new connections. Unless {@link #isReusePort() reusePort} is set, they share
+     * a single listening socket.
+     *
+     * @return Number of acceptor threads
+     */
+    public int getAcceptorCount() {
+        return acceptorCount;
+    }
+
+    public void setAcceptorCount( int acceptorCount ) {
+        this.acceptorCount = acceptorCount;
+    }
+
+    /**
+     * Should each acceptor thread bind its own listening socket, with SO_REUSEPORT, so the kernel spreads new
+     * connections across them. Requires Java 9 or later, on a platform with SO_REUSEPORT, such as Linux.
+     *
+     * @return True if each acceptor has its own listening socket
+     */
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    public void setReusePort( boolean reusePort ) {
+        this.reusePort = reusePort;
+    }
+
+    /**
+     * Get the most sessions that may be open at once. Connections beyond it are closed as soon as they are accepted.
+     *
+     * @return Maximum number of sessions. 0 is unlimited
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections( int maxConnections ) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Get the most sessions that may be open at once from a single remote address. Connections beyond it are closed as
+     * soon as they are accepted.
+     *
+     * @return Maximum number of sessions per address. 0 is unlimited
+     */
+    public int getMaxConnectionsPerAddress() {
+        return maxConnectionsPerAddress;
+    }
+
+    public void setMaxConnectionsPerAddress( int maxConnectionsPerAddress ) {
+        this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+    }
+
+    /**
+     * Get the number of milliseconds work may wait for a worker thread before JetIO counts itself as overloaded, and
+     * deals with new connections as {@link #getOverload()} says, until the wait falls back to half of this.
+     *
+     * @return Milliseconds of waiting that means overload. 0 disables overload detection
+     */
+    public long getOverloadQueueWait() {
+        return overloadQueueWait;
+    }
+
+    public void setOverloadQueueWait( long overloadQueueWait ) {
+        this.overloadQueueWait = overloadQueueWait;
+    }
+
+    /**
+     * Get the number of milliseconds between measurements of how long work waits for a worker thread
+     *
+     * @return Milliseconds between measurements
+     */
+    public long getOverloadCheckInterval() {
+        return overloadCheckInterval;
+    }
+
+    public void setOverloadCheckInterval( long overloadCheckInterval ) {
+        this.overloadCheckInterval = overloadCheckInterval;
+    }
+
+    /**
+     * Get what happens to new connections while overloaded
+     *
+     * @return Overload behavior
+     */
+    public Overload getOverload() {
+        return overload;
+    }
+
+    public void setOverload( Overload overload ) {
+        this.overload = overload;
+    }
+
+    /**
+     * Get the number of milliseconds a session may go without reading or writing any data before it is closed
+     *
+     * @return Idle timeout in milliseconds. 0 disables it
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout( long idleTimeout ) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Get the number of milliseconds a message may take to arrive, once its first bytes have, before the session is
+     * closed. This frees the worker thread a {@link MessageReader} blocks while waiting on the rest of the message. With
+     * a {@link MessageDecoder}, it is how long undecoded data may be held without the decoder making progress.
+     *
+     * @return Read timeout in milliseconds. 0 disables it
+     */
+    public long getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout( long readTimeout ) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Get the number of milliseconds queued data may wait without any of it being written before the session is closed
+     *
+     * @return Write timeout in milliseconds. 0 disables it
+     */
+    public long getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout( long writeTimeout ) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    /**
+     * Get the number of milliseconds between ticks of the timer that enforces timeouts, which is how late a timeout may
+     * be noticed
+     *
+     * @return Timer resolution in milliseconds
+     */
+    public long getTimerTick() {
+        return timerTick;
+    }
+
+    public void setTimerTick( long timerTick ) {
+        this.timerTick = timerTick;
+    }
+
+    /**
+     * Get the number of milliseconds an outbound connection may take to be established before it is abandoned
+     *
+     * @return Connect timeout in milliseconds. 0 leaves it to the operating system
+     */
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout( long connectTimeout ) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Get the number of milliseconds a {@link ConnectionPool} waits after a connection attempt completes before
+     * replacing the connection, once it has failed or closed
+     *
+     * @return Reconnect delay in milliseconds
+     */
+    public long getReconnectDelay() {
+        return reconnectDelay;
+    }
+
+    public void setReconnectDelay( long reconnectDelay ) {
+        this.reconnectDelay = reconnectDelay;
+    }
+
     /**
      * Get the number of milliseconds to wait for threads to terminate when disposing
      *
@@ -102,10 +315,275 @@ public class Configuration {
         this.workerThreadCount = workerThreadCount;
     }
 
+    /**
+     * Should connections be processed on virtual threads, one per task, rather than a fixed pool of
+     * {@link #getWorkerThreadCount() worker threads}. A {@link MessageReader} blocked reading a message then only ties
+     * up a virtual thread, so many more sessions can be in the midst of reading at once. Requires Java 21 or later.
+     *
+     * A virtual thread that blocks inside a {@code synchronized} block or method pins its carrier thread until it is
+     * done, so a {@link MessageReader} should wait on I/O or {@link java.util.concurrent.locks.Lock locks} rather than
+     * block while holding a monitor. Buffers are not cached per thread in this mode.
+     *
+     * @return True to use virtual worker threads
+     */
+    public boolean isVirtualWorkerThreads() {
+        return virtualWorkerThreads;
+    }
+
+    public void setVirtualWorkerThreads( boolean virtualWorkerThreads ) {
+        this.virtualWorkerThreads = virtualWorkerThreads;
+    }
+
+    /**
+     * Get the most worker tasks that a batch of sessions ready to be read is split into, by the
+     * {@link ExecutionEngine#Fibers fibers} and {@link ExecutionEngine#Direct direct} execution engines. Sessions in
+     * the same task are read one after another, so this suits a {@link MessageDecoder}, which never blocks, with about
+     * one task per core.
+     *
+     * @return Most tasks per batch, or 0 to read each session in a task of its own
+     */
+    public int getWorkerBatchTasks() {
+        return workerBatchTasks;
+    }
+
+    public void setWorkerBatchTasks( int workerBatchTasks ) {
+        this.workerBatchTasks = workerBatchTasks;
+    }
+
+    /**
+     * Get the number of read selectors, and the number of write selectors, to spread sessions across.
+     *
+     * @return Number of selectors for each operation
+     */
+    public int getSelectorCount() {
+        return selectorCount;
+    }
+
+    public void setSelectorCount( int selectorCount ) {
+        this.selectorCount = selectorCount;
+    }
+
+    /**
+     * Get how new sessions are assigned to a selector
+     *
+     * @return Selector assignment policy
+     */
+    public SelectorAssignment getSelectorAssignment() {
+        return selectorAssignment;
+    }
+
+    public void setSelectorAssignment( SelectorAssignment selectorAssignment ) {
+        this.selectorAssignment = selectorAssignment;
+    }
+
+    /**
+     * Get how sessions are handed from the selectors to the worker threads that read them
+     *
+     * @return Execution engine
+     */
+    public ExecutionEngine getExecutionEngine() {
+        return executionEngine;
+    }
+
+    public void setExecutionEngine( ExecutionEngine executionEngine ) {
+        this.executionEngine = executionEngine;
+    }
+
+    /**
+     * Get the number of lanes sessions are spread over by the {@link ExecutionEngine#Lanes lanes} execution engine,
+     * each with a thread of its own. Defaults to the number of available processors.
+     *
+     * @return Number of lanes
+     */
+    public int getLaneCount() {
+        return laneCount;
+    }
+
+    public void setLaneCount( int laneCount ) {
+        this.laneCount = laneCount;
+    }
+
+    /**
+     * Should sessions keep their selection keys registered while idle, toggling the key's interest rather than
+     * cancelling and re-registering it each time. Sessions read with a {@link MessageDecoder} always retain their keys.
+     *
+     * A retained read key still has to be cancelled when a session is switched into blocking mode to read a message,
+     * but it saves the deregistration, new key and selector wakeup when a readiness check finds nothing to read, and
+     * for every write that has to wait on the write selector.
+     *
+     * @return True if selection keys should be retained
+     */
+    public boolean isRetainSelectionKeys() {
+        return retainSelectionKeys;
+    }
+
+    public void setRetainSelectionKeys( boolean retainSelectionKeys ) {
+        this.retainSelectionKeys = retainSelectionKeys;
+    }
+
+    /**
+     * Get the number of buffers waiting to be written to a session that are kept in its lock-free ring. Any more spill
+     * into a slower overflow, they are never held up or turned away, which only the
+     * {@link #getWriteHighWaterMark() high water mark} does. Rounded up to a power of two.
+     *
+     * @return Write queue capacity, in buffers
+     */
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
+    }
+
+    public void setWriteQueueCapacity( int writeQueueCapacity ) {
+        this.writeQueueCapacity = writeQueueCapacity;
+    }
+
+    /**
+     * Get the number of bytes waiting to be written to a session above which it is no longer writable.
+     *
+     * @return High water mark in bytes. 0 disables the limit
+     * @see #getWriteBackpressure()
+     */
+    public long getWriteHighWaterMark() {
+        return writeHighWaterMark;
+    }
+
+    public void setWriteHighWaterMark( long writeHighWaterMark ) {
+        this.writeHighWaterMark = writeHighWaterMark;
+    }
+
+    /**
+     * Get the number of bytes waiting to be written to a session at or below which it becomes writable again.
+     *
+     * @return Low water mark in bytes
+     */
+    public long getWriteLowWaterMark() {
+        return writeLowWaterMark;
+    }
+
+    public void setWriteLowWaterMark( long writeLowWaterMark ) {
+        this.writeLowWaterMark = writeLowWaterMark;
+    }
+
+    /**
+     * Get what happens to writes once a session has crossed its high water mark
+     *
+     * @return Backpressure policy
+     */
+    public WriteBackpressure getWriteBackpressure() {
+        return writeBackpressure;
+    }
+
+    public void setWriteBackpressure( WriteBackpressure writeBackpressure ) {
+        this.writeBackpressure = writeBackpressure;
+    }
+
+    /**
+     * Get the most direct memory the buffer pool may allocate. It grows a
+     * {@link #getBufferAllocationSize() chunk} at a time, so this is rounded down to a multiple of that.
+     *
+     * @return Maximum bytes of buffer memory. 0 is unbounded
+     * @see #getBufferExhaustion()
+     */
+    public long getMaxBufferMemory() {
+        return maxBufferMemory;
+    }
+
+    public void setMaxBufferMemory( long maxBufferMemory ) {
+        this.maxBufferMemory = maxBufferMemory;
+    }
+
+    /**
+     * Get what happens when a buffer is needed and the pool is at its maximum size
+     *
+     * @return Exhaustion policy
+     */
+    public BufferExhaustion getBufferExhaustion() {
+        return bufferExhaustion;
+    }
+
+    public void setBufferExhaustion( BufferExhaustion bufferExhaustion ) {
+        this.bufferExhaustion = bufferExhaustion;
+    }
+
+    /**
+     * Get the number of milliseconds to wait for a buffer when the pool is exhausted, and set to
+     * {@link BufferExhaustion#Block}
+     *
+     * @return Number of milliseconds to wait
+     */
+    public long getBufferExhaustionTimeout() {
+        return bufferExhaustionTimeout;
+    }
+
+    public void setBufferExhaustionTimeout( long bufferExhaustionTimeout ) {
+        this.bufferExhaustionTimeout = bufferExhaustionTimeout;
+    }
+
+    /**
+     * Get the number of milliseconds the buffer pool must go without needing more buffers before allocations whose
+     * buffers are all free are released.
+     *
+     * @return Number of milliseconds. 0 never releases memory
+     */
+    public long getBufferIdleTime() {
+        return bufferIdleTime;
+    }
+
+    public void setBufferIdleTime( long bufferIdleTime ) {
+        this.bufferIdleTime = bufferIdleTime;
+    }
+
+    /**
+     * Get the reporter that {@link JetIO#metrics() metrics} are periodically handed to
+     *
+     * @return Metrics reporter, or null to not report them
+     */
+    public MetricsReporter getMetricsReporter() {
+        return metricsReporter;
+    }
+
+    public void setMetricsReporter( MetricsReporter metricsReporter ) {
+        this.metricsReporter = metricsReporter;
+    }
+
+    /**
+     * Get the number of milliseconds between metrics reports
+     *
+     * @return Number of milliseconds between reports
+     */
+    public long getMetricsReportInterval() {
+        return metricsReportInterval;
+    }
+
+    public void setMetricsReportInterval( long metricsReportInterval ) {
+        this.metricsReportInterval = metricsReportInterval;
+    }
+
+    /**
+     * Should {@link Metrics} be registered with the platform MBean server while the instance is running, as
+     * {@code org.jetio:type=Metrics} with the instance's {@link #getName() name} and a number that tells apart
+     * instances of the same name.
+     *
+     * @return True to expose metrics over JMX
+     */
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled( boolean jmxEnabled ) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
     int getCounter() {
         return counter;
     }
 
+    /**
+     * Get the size of the buffers sessions read into, and that {@link BufferSource#acquire()} hands out. Must be one
+     * of the buffer size classes.
+     *
+     * @return Default buffer size in bytes
+     * @see #getBufferMinimumSize()
+     */
     public int getBufferSlizeSize() {
         return bufferSlizeSize;
     }
@@ -114,6 +592,12 @@ public class Configuration {
         this.bufferSlizeSize = bufferSlizeSize;
     }
 
+    /**
+     * Get the size of the direct memory allocations that buffers are carved from. Must be a multiple of the
+     * {@link #getBufferMaximumSize() largest buffer size}.
+     *
+     * @return Allocation size in bytes
+     */
     public int getBufferAllocationSize() {
         return bufferAllocationSize;
     }
@@ -122,6 +606,35 @@ public class Configuration {
         this.bufferAllocationSize = bufferAllocationSize;
     }
 
+    /**
+     * Get the smallest buffer size. Buffers come in power-of-two size classes, from this up to the
+     * {@link #getBufferMaximumSize() maximum}, and {@link SizedBufferSource#acquire(int)} hands out the smallest that
+     * fits.
+     *
+     * @return Smallest buffer size in bytes, a power of two
+     */
+    public int getBufferMinimumSize() {
+        return bufferMinimumSize;
+    }
+
+    public void setBufferMinimumSize( int bufferMinimumSize ) {
+        this.bufferMinimumSize = bufferMinimumSize;
+    }
+
+    /**
+     * Get the largest buffer size. This also bounds how large a session's read buffer can grow to hold a single
+     * message when reading with a {@link MessageDecoder}.
+     *
+     * @return Largest buffer size in bytes, a power of two
+     */
+    public int getBufferMaximumSize() {
+        return bufferMaximumSize;
+    }
+
+    public void setBufferMaximumSize( int bufferMaximumSize ) {
+        this.bufferMaximumSize = bufferMaximumSize;
+    }
+
     /** @see Socket#getTcpNoDelay() */
     public boolean isTcpNoDelay() {
         return tcpNoDelay;
@@ -0,0 +1,145 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle on an outbound connection being made, which is done once the connection is established, or has failed.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ * @see JetIO#connect(SocketAddress)
+ */
+public final class ConnectFuture {
+    private final SocketAddress address;
+    /** Told when this completes, if it belongs to a pool */
+    private final ConnectionPool pool;
+    private volatile boolean done;
+    private volatile Session session;
+    private volatile IOException cause;
+    private volatile long completed;
+
+    ConnectFuture( SocketAddress address, ConnectionPool pool ) {
+        this.address = address;
+        this.pool = pool;
+    }
+
+    /**
+     * Get the address being connected to
+     *
+     * @return Remote address
+     */
+    public SocketAddress address() {
+        return address;
+    }
+
+    /**
+     * Check to see if the connection attempt has completed, successfully or not
+     *
+     * @return True if the attempt is done
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Check to see if the connection was established
+     *
+     * @return True if connected
+     */
+    public boolean isSuccess() {
+        return null != session;
+    }
+
+    /**
+     * Get the session for the connection
+     *
+     * @return Session, or null if the connection has not been established
+     */
+    public Session session() {
+        return session;
+    }
+
+    /**
+     * Get the reason the connection could not be established
+     *
+     * @return Exception the attempt failed with, or null if it has not failed
+     */
+    public IOException cause() {
+        return cause;
+    }
+
+    /**
+     * Wait for the connection attempt to complete
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        synchronized( this ) {
+            while ( !done ) {
+                wait();
+            }
+        }
+    }
+
+    /**
+     * Wait for the connection attempt to complete, up to the specified amount of time
+     *
+     * @return True if the attempt completed
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean await( long timeout, TimeUnit unit ) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos( timeout );
+
+        synchronized( this ) {
+            while ( !done ) {
+                long remaining = deadline - System.nanoTime();
+
+                if ( remaining <= 0 ) {
+                    return false;
+                }
+
+                TimeUnit.NANOSECONDS.timedWait( this, remaining );
+            }
+        }
+
+        return true;
+    }
+
+    /** System time, in nanoseconds, at which the attempt completed */
+    long completed() {
+        return completed;
+    }
+
+    /** @return False if the attempt had already completed, in which case the session should be closed */
+    boolean succeed( Session session ) {
+        return complete( session, null );
+    }
+
+    /** @return False if the attempt had already completed */
+    boolean fail( IOException cause ) {
+        return complete( null, cause );
+    }
+
+    private boolean complete( Session session, IOException cause ) {
+        synchronized( this ) {
+            if ( done ) {
+                return false;
+            }
+
+            this.session = session;
+            this.cause = cause;
+            this.completed = System.nanoTime();
+            this.done = true;
+
+            notifyAll();
+        }
+
+        if ( null != pool ) {
+            pool.completed( this );
+        }
+
+        return true;
+    }
+}
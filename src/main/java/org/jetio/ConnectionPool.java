@@ -0,0 +1,174 @@
+package org.jetio;
+
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed number of outbound connections to one address, handed out in turn.
+ *
+ * Connections that close or fail to be established are replaced the next time their turn comes around, as long as the
+ * {@link Configuration#getReconnectDelay() reconnect delay} has passed since the last attempt, so an address that is
+ * down isn't hammered with connection attempts.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ * @see JetIO#connectionPool(SocketAddress, int)
+ */
+public class ConnectionPool {
+    private final Connector connector;
+    private final SocketAddress address;
+    private final long reconnectDelay;
+    private final AtomicReferenceArray<ConnectFuture> connections;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Object lock = new Object();
+    /** Bumped, under {@link #lock}, as connection attempts complete */
+    private long completions;
+    private volatile boolean closed;
+
+    ConnectionPool( Connector connector, SocketAddress address, int size, Configuration config ) {
+        if ( size < 1 ) {
+            throw new IllegalArgumentException( "a pool needs at least one connection" );
+        }
+
+        this.connector = connector;
+        this.address = address;
+        this.reconnectDelay = TimeUnit.MILLISECONDS.toNanos( config.getReconnectDelay() );
+        this.connections = new AtomicReferenceArray<ConnectFuture>( size );
+
+        for ( int i = 0; i < size; i++ ) {
+            connections.set( i, connector.connect( address, this ) );
+        }
+    }
+
+    /**
+     * Get the address this pool connects to
+     *
+     * @return Remote address
+     */
+    public SocketAddress address() {
+        return address;
+    }
+
+    /**
+     * Get the number of connections this pool keeps
+     *
+     * @return Pool size
+     */
+    public int size() {
+        return connections.length();
+    }
+
+    /**
+     * Get the next open session, without waiting for one
+     *
+     * @return Open session, or null if none are connected right now
+     *
+     * @throws IllegalStateException if the pool has been closed
+     */
+    public Session session() {
+        if ( closed ) {
+            throw new IllegalStateException( "pool for " + address + " is closed" );
+        }
+
+        int size = connections.length();
+        int start = ( next.getAndIncrement() & Integer.MAX_VALUE ) % size;
+
+        for ( int i = 0; i < size; i++ ) {
+            int slot = ( start + i ) % size;
+            ConnectFuture connection = connections.get( slot );
+
+            if ( !connection.isDone() ) {
+                continue;
+            }
+
+            Session session = connection.session();
+
+            if ( null != session && !session.isClosed() ) {
+                return session;
+            }
+
+            reconnect( slot, connection );
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the next open session, waiting for one to be connected up to the specified amount of time
+     *
+     * @return Open session, or null if none could be had in time
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if the pool has been closed
+     */
+    public Session await( long timeout, TimeUnit unit ) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos( timeout );
+
+        while ( true ) {
+            long seen;
+
+            synchronized( lock ) {
+                seen = completions;
+            }
+
+            Session session = session();
+
+            if ( null != session ) {
+                return session;
+            }
+
+            long remaining = deadline - System.nanoTime();
+
+            if ( remaining <= 0 ) {
+                return null;
+            }
+
+            synchronized( lock ) {
+                if ( seen == completions ) {
+                    // Wake up in time for a reconnect to become due, in case nothing else completes first
+                    TimeUnit.NANOSECONDS.timedWait( lock, reconnectDelay > 0 ? Math.min( remaining, reconnectDelay )
+                                                                              : remaining );
+                }
+            }
+        }
+    }
+
+    /** Close every connection, and stop making new ones */
+    public void close() {
+        closed = true;
+
+        for ( int i = 0; i < connections.length(); i++ ) {
+            Session session = connections.get( i ).session();
+
+            if ( null != session ) {
+                session.close();
+            }
+        }
+    }
+
+    private void reconnect( int slot, ConnectFuture previous ) {
+        if ( System.nanoTime() - previous.completed() < reconnectDelay ) {
+            return;
+        }
+
+        // Whoever swaps in the placeholder makes the attempt, so a slot is only reconnected once
+        ConnectFuture placeholder = new ConnectFuture( address, null );
+
+        if ( connections.compareAndSet( slot, previous, placeholder ) ) {
+            connections.set( slot, connector.connect( address, this ) );
+        }
+    }
+
+    void completed( ConnectFuture connection ) {
+        if ( closed && null != connection.session() ) {
+            connection.session().close();
+        }
+
+        synchronized( lock ) {
+            completions++;
+
+            lock.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jetio.lifecycle.Lifecycle;
+import org.jetlang.channels.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Make outbound connections without blocking, waiting on them with {@link SelectionKey#OP_CONNECT} in a selector of
+ * its own. Once established, a connection becomes a {@link Session} like any accepted one, and is handed on to be read
+ * in the same way.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class Connector implements Runnable, Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger( Connector.class );
+
+    private final Configuration config;
+    private final SessionFactory sessionFactory;
+    private final Publisher<Event> newConnections;
+    private final TimingWheel timers;
+    private final Selector selector;
+    private final Thread thread;
+    /** Connections waiting to be registered with the selector */
+    private final List<Pending> toRegister = new ArrayList<Pending>();
+    /** Set once disposed, after which nothing would ever complete a new connection. Guarded by {@link #toRegister}. */
+    private boolean stopped;
+
+    /**
+     * @param config         Configuration
+     * @param newConnections Where new sessions go
+     * @param sessionFactory Factory for new sessions
+     * @param timers         Wheel to enforce the {@link Configuration#getConnectTimeout() connect timeout} on, or null
+     */
+    Connector( Configuration config,
+               Publisher<Event> newConnections,
+               SessionFactory sessionFactory,
+               TimingWheel timers )
+        throws IOException
+    {
+        this.config = config;
+        this.newConnections = newConnections;
+        this.sessionFactory = sessionFactory;
+        this.timers = config.getConnectTimeout() > 0 ? timers : null;
+
+        this.selector = Selector.open();
+        this.thread = new Thread( this, "connect " + config.getName() + "-" + config.getCounter() );
+    }
+
+    /**
+     * Start connecting to an address
+     *
+     * @param address Address to connect to
+     * @param pool    Pool the connection is for, or null
+     *
+     * @return Handle on the connection being made, already failed if the connector has been disposed
+     */
+    ConnectFuture connect( SocketAddress address, ConnectionPool pool ) {
+        ConnectFuture future = new ConnectFuture( address, pool );
+        SocketChannel channel = null;
+
+        try {
+            if ( isStopped() ) {
+                throw new ClosedChannelException();
+            }
+
+            channel = SocketChannel.open();
+            channel.configureBlocking( false );
+            channel.socket().setTcpNoDelay( config.isTcpNoDelay() );
+
+            if ( channel.connect( address ) ) {
+                connected( channel, future );
+            } else {
+                Pending pending = new Pending( channel, future );
+
+                synchronized( toRegister ) {
+                    if ( stopped ) {
+                        throw new ClosedChannelException();
+                    }
+
+                    toRegister.add( pending );
+                }
+
+                if ( null != timers ) {
+                    timers.schedule( pending, config.getConnectTimeout() );
+                }
+
+                selector.wakeup();
+            }
+        } catch( IOException e ) {
+            close( channel );
+
+            future.fail( e );
+        }
+
+        return future;
+    }
+
+    private boolean isStopped() {
+        synchronized( toRegister ) {
+            return stopped;
+        }
+    }
+
+    private void connected( SocketChannel channel, ConnectFuture future ) {
+        Session session = sessionFactory.connected( channel );
+
+        if ( !future.succeed( session ) ) {
+            // Timed out just as it connected
+            session.close();
+
+            return;
+        }
+
+        logger.debug( "connected {}", session );
+
+        newConnections.publish( session.event() );
+    }
+
+    @Override
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void dispose() {
+        synchronized( toRegister ) {
+            stopped = true;
+        }
+
+        thread.interrupt();
+
+        try {
+            thread.join( config.getDisposalWaitTime() );
+        } catch( InterruptedException e ) {
+            logger.error( "Interrupted while waiting for connector thread to complete", e );
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while ( !Thread.interrupted() ) {
+                try {
+                    selector.select();
+                } catch( CancelledKeyException e ) {
+                    logger.debug( "Key was cancelled mid-select, ignoring", e );
+                }
+
+                if ( Thread.interrupted() ) {
+                    logger.debug( "interrupted..." );
+                    break;
+                }
+
+                register();
+
+                // Connecting is rare enough next to reading that the selected-key set's iterator is no burden
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+
+                while ( keys.hasNext() ) {
+                    SelectionKey key = keys.next();
+
+                    keys.remove();
+
+                    finishConnect( key, (Pending) key.attachment() );
+                }
+            }
+        } catch( IOException e ) {
+            logger.error( "Error while selecting for connects", e );
+        } finally {
+            failPending();
+        }
+
+        logger.debug( "connector thread exiting..." );
+    }
+
+    private void register() {
+        synchronized( toRegister ) {
+            for ( Pending pending : toRegister ) {
+                try {
+                    pending.channel.register( selector, SelectionKey.OP_CONNECT, pending );
+                } catch( IOException e ) {
+                    // Closed by the connect timeout already
+                    pending.fail( e );
+                }
+            }
+
+            toRegister.clear();
+        }
+    }
+
+    private void finishConnect( SelectionKey key, Pending pending ) {
+        try {
+            if ( !pending.channel.finishConnect() ) {
+                return;
+            }
+        } catch( IOException e ) {
+            pending.fail( e );
+
+            return;
+        }
+
+        key.cancel();
+
+        if ( null != timers ) {
+            timers.cancel( pending );
+        }
+
+        connected( pending.channel, pending.future );
+    }
+
+    /** Fail whatever is still connecting when the connector stops */
+    private void failPending() {
+        register();
+
+        for ( SelectionKey key : selector.keys() ) {
+            ( (Pending) key.attachment() ).fail( new IOException( "connector shut down" ) );
+        }
+
+        try {
+            selector.close();
+        } catch( IOException e ) {
+            logger.warn( "Unable to close connect selector", e );
+        }
+    }
+
+    private static void close( SocketChannel channel ) {
+        if ( null == channel ) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch( IOException e ) {
+            logger.debug( "Exception closing " + channel, e );
+        }
+    }
+
+    /** A connection that is still being established, which expires if it takes too long */
+    private static class Pending extends Timeout {
+        private final SocketChannel channel;
+        private final ConnectFuture future;
+
+        Pending( SocketChannel channel, ConnectFuture future ) {
+            this.channel = channel;
+            this.future = future;
+        }
+
+        void fail( IOException cause ) {
+            if ( future.fail( cause ) ) {
+                // Closing cancels the key, if it is registered
+                close( channel );
+            }
+        }
+
+        @Override
+        void expired() {
+            fail( new SocketTimeoutException( "connecting to " + future.address() + " timed out" ) );
+        }
+
+        @Override
+        public String toString() {
+            return "connect to " + future.address();
+        }
+    }
+}
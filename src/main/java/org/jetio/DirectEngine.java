@@ -0,0 +1,140 @@
+package org.jetio;
+
+import java.util.concurrent.Executor;
+
+import org.jetlang.channels.Publisher;
+import org.jetlang.core.Callback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs reads for sessions that have become readable, for the {@link ExecutionEngine#Direct direct} and
+ * {@link ExecutionEngine#Lanes lanes} execution engines.
+ *
+ * Selectors publish readable sessions here, and each is handed to a worker thread by its {@link SessionDriver}. The
+ * reader is invoked on that thread, and rather than publishing where the session should go next, it tells the driver
+ * through {@link #READ_AGAIN} or {@link #SELECT}. The driver acts on that once the reader returns, so a session moves
+ * from readable, through any number of messages, and back into its selector without another hand-off.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class DirectEngine implements Publisher<Event>, ReadyHandler {
+    private static final Logger logger = LoggerFactory.getLogger( DirectEngine.class );
+
+    /** For readers to ask that the session be read from again right away */
+    static final Publisher<Event> READ_AGAIN = new Publisher<Event>() {
+        @Override
+        public void publish( Event event ) {
+            event.session().driver().readAgain();
+        }
+    };
+
+    /** For readers to ask that the session go back into its read selector */
+    static final Publisher<Event> SELECT = new Publisher<Event>() {
+        @Override
+        public void publish( Event event ) {
+            event.session().driver().select();
+        }
+    };
+
+    private final Executor[] executors;
+    private final Callback<Event> reader;
+    private final Callback<Event> readSelectors;
+    private final int maximumTasks;
+
+    /**
+     * @param executors     Executors to run reads on, with a session always using the same one
+     * @param reader        Reader for sessions that have become readable
+     * @param readSelectors Where sessions go when there is nothing more to read
+     * @param maximumTasks  Most tasks the sessions readable in one pass of a selector are split into, when there is a
+     *                      single executor
+     */
+    DirectEngine( Executor[] executors, Callback<Event> reader, Callback<Event> readSelectors, int maximumTasks ) {
+        this.executors = executors;
+        this.maximumTasks = 1 == executors.length ? maximumTasks : Integer.MAX_VALUE;
+        this.reader = reader;
+        this.readSelectors = readSelectors;
+    }
+
+    /** A session has become readable */
+    @Override
+    public void publish( Event event ) {
+        event.session().driver().readable();
+    }
+
+    /** @return Executor to run a session's reads on, chosen by the session's hash */
+    Executor executorFor( Session session ) {
+        if ( 1 == executors.length ) {
+            return executors[0];
+        }
+
+        return executors[( System.identityHashCode( session ) & Integer.MAX_VALUE ) % executors.length];
+    }
+
+    @Override
+    public void ready( Session[] sessions, int count ) {
+        if ( count <= maximumTasks ) {
+            for ( int i = 0; i < count; i++ ) {
+                sessions[i].driver().readable();
+            }
+
+            return;
+        }
+
+        SessionDriver[] drivers = new SessionDriver[count];
+        int scheduled = 0;
+
+        for ( int i = 0; i < count; i++ ) {
+            SessionDriver driver = sessions[i].driver();
+
+            if ( driver.schedule() ) {
+                drivers[scheduled++] = driver;
+            }
+        }
+
+        // Spread the remainder over the first chunks, so they differ in size by at most one
+        int tasks = Math.min( scheduled, maximumTasks );
+        int start = 0;
+
+        for ( int i = 0; i < tasks; i++ ) {
+            int end = start + scheduled / tasks + ( i < scheduled % tasks ? 1 : 0 );
+
+            executors[0].execute( new Chunk( drivers, start, end ) );
+
+            start = end;
+        }
+    }
+
+    void read( Event event ) {
+        reader.onMessage( event );
+    }
+
+    void select( Event event ) {
+        readSelectors.onMessage( event );
+    }
+
+    /** Sessions that became readable in the same pass of a selector, read one after another by a single task */
+    private static class Chunk implements Runnable {
+        private final SessionDriver[] drivers;
+        private final int start;
+        private final int end;
+
+        Chunk( SessionDriver[] drivers, int start, int end ) {
+            this.drivers = drivers;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            for ( int i = start; i < end; i++ ) {
+                try {
+                    drivers[i].run();
+                } catch( RuntimeException e ) {
+                    // Don't let one failure strand the rest of the chunk
+                    logger.error( "Exception driving " + drivers[i], e );
+                }
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package org.jetio;
 /**
  * Generic event involving a {@link Session}
  *
+ * JetIO publishes the same instance for every event involving a session, so events should not be compared by identity.
+ *
  * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
  */
 public class Event {
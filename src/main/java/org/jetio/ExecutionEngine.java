@@ -0,0 +1,23 @@
+package org.jetio;
+
+/**
+ * How sessions are handed between the selectors and the worker threads that read them
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public enum ExecutionEngine {
+    /** Pass sessions between stages through jetlang channels and fibers, a queue and executor hop per stage */
+    Fibers,
+    /**
+     * Drive each session through its reads directly, with a single executor hand-off when it becomes readable. The
+     * worker thread reads, decodes or reads messages, and puts the session back into its selector itself.
+     */
+    Direct,
+    /**
+     * Drive sessions as {@link #Direct} does, but on a fixed number of {@link Configuration#getLaneCount() lanes}
+     * rather than the worker threads. A session is bound to one lane for its entire life, so a {@link MessageReader}
+     * or {@link MessageDecoder} is only ever called for it by the same thread, and may keep per-session state without
+     * synchronizing. Flushing writes that had to wait for the socket still happens on the write selector's thread.
+     */
+    Lanes
+}
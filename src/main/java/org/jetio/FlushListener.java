@@ -0,0 +1,21 @@
+package org.jetio;
+
+/**
+ * Listener for progress in writing a session's queued data to its socket
+ *
+ * It is called from whatever thread did the writing, which may be a selector thread, so it should return quickly.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ * @see Session#setFlushListener(FlushListener)
+ */
+public interface FlushListener {
+
+    /**
+     * Called after bytes have been written to the socket
+     *
+     * @param session Session that was written to
+     * @param written Number of bytes just written
+     * @param drained True if nothing is left waiting to be written
+     */
+    void flushed( Session session, long written, boolean drained );
+}
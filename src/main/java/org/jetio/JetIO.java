@@ -1,40 +1,63 @@
 package org.jetio;
 
 import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import javax.management.JMException;
 
 import org.jetio.lifecycle.Lifecycle;
 import org.jetio.lifecycle.Startable;
+import org.jetio.metrics.Gauge;
+import org.jetio.metrics.JmxMetrics;
+import org.jetio.metrics.Metrics;
+import org.jetio.util.CallbackPublisher;
 import org.jetio.util.ExecutorBatchExecutor;
+import org.jetio.util.MeteredCallback;
+import org.jetio.util.MeteredPublisher;
 import org.jetio.util.MultiPublisher;
+import org.jetio.util.ReusePort;
+import org.jetio.util.VirtualThreads;
 import org.jetio.util.WorkerThreadFactory;
 import org.jetlang.channels.Channel;
 import org.jetlang.channels.MemoryChannel;
+import org.jetlang.channels.Publisher;
 import org.jetlang.channels.Subscriber;
+import org.jetlang.core.Callback;
 import org.jetlang.core.Disposable;
 import org.jetlang.fibers.Fiber;
 import org.jetlang.fibers.PoolFiberFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Entry point to JetIO.
  *
- * JetIO is a low-latency socket server designed for passing messages of deterministic size
+ * JetIO is a low-latency socket server designed for passing messages of deterministic size. It can also
+ * {@link #connect connect} out to other hosts, reading and writing those connections the same way as accepted ones.
+ *
+ * Messages can either be read blocking-style with a {@link MessageReader} (or a zero-copy
+ * {@link BufferMessageReader}), or incrementally without ever blocking with a {@link MessageDecoder}.
  *
  * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
  */
 public class JetIO implements Disposable, Startable {
+    private static final Logger logger = LoggerFactory.getLogger( JetIO.class );
+
     private final Channel<Event> opened = new MemoryChannel<Event>();
     private final Channel<Event> closed = new MemoryChannel<Event>();
+    private final Channel<Event> writability = new MemoryChannel<Event>();
 
     private final Channel<DataEvent<IOException>> failed = new MemoryChannel<DataEvent<IOException>>();
 
     private final Channel<Event> readNext = new MemoryChannel<Event>();
     private final Channel<Event> readAgain = new MemoryChannel<Event>();
 
-    private final MemoryChannel<DataEvent<byte[]>> read = new MemoryChannel<DataEvent<byte[]>>();
+    private final MemoryChannel<DataEvent<ByteBuffer>> read = new MemoryChannel<DataEvent<ByteBuffer>>();
 
     private final Channel<Event> addToReadSelector = new MemoryChannel<Event>();
     private final Channel<Event> addToWriteSelector = new MemoryChannel<Event>();
@@ -45,38 +68,243 @@ public class JetIO implements Disposable, Startable {
     private final PoolFiberFactory fiberFactory;
     private final ExecutorService workers;
 
+    private final Metrics metrics = new Metrics();
+    private final Configuration config;
+    private final Connector connector;
+    private final BufferQueue buffers;
+    private JmxMetrics jmx;
+
+    /**
+     * Create an instance that reads messages blocking-style, with a worker thread dedicated to each message being read.
+     *
+     * @param messageReader Reader for messages
+     * @param config        Configuration
+     *
+     * @throws IOException if the acceptor or selectors could not be opened
+     */
     public JetIO( MessageReader messageReader, Configuration config ) throws IOException {
-        if ( null == messageReader ) {
-            throw new IllegalArgumentException( "messageReader is required" );
+        this( config, null == messageReader ? null : new ByteArrayMessageReader( messageReader ), null );
+    }
+
+    /**
+     * Create an instance that reads messages blocking-style, handing the reader the pooled buffer the first chunk of
+     * each message was read into rather than a copy of it.
+     *
+     * @param messageReader Reader for messages
+     * @param config        Configuration
+     *
+     * @throws IOException if the acceptor or selectors could not be opened
+     */
+    public JetIO( BufferMessageReader messageReader, Configuration config ) throws IOException {
+        this( config, messageReader, null );
+    }
+
+    /**
+     * Create an instance that never blocks while reading, feeding data to a decoder as it arrives. Sessions stay in
+     * non-blocking mode for their entire life, so a few worker threads can serve a large number of connections.
+     *
+     * @param messageDecoder Decoder for messages
+     * @param config         Configuration
+     *
+     * @throws IOException if the acceptor or selectors could not be opened
+     */
+    public JetIO( MessageDecoder messageDecoder, Configuration config ) throws IOException {
+        this( config, null, messageDecoder );
+    }
+
+    private JetIO( Configuration config, BufferMessageReader messageReader, MessageDecoder messageDecoder )
+        throws IOException
+    {
+        if ( null == messageReader && null == messageDecoder ) {
+            throw new IllegalArgumentException( "messageReader or messageDecoder is required" );
         } else if ( null == config.getName() ) {
             throw new IllegalArgumentException( "configuration must specify a name" );
+        } else if ( config.getSelectorCount() < 1 ) {
+            throw new IllegalArgumentException( "configuration must specify at least one selector" );
+        } else if ( config.getAcceptorCount() < 1 ) {
+            throw new IllegalArgumentException( "configuration must specify at least one acceptor" );
+        } else if ( config.isReusePort() && !ReusePort.isAvailable() ) {
+            throw new IllegalArgumentException( "reusePort requires Java 9 or later on a platform with SO_REUSEPORT" );
+        } else if ( config.isVirtualWorkerThreads() && !VirtualThreads.isAvailable() ) {
+            throw new IllegalArgumentException( "virtual worker threads require Java 21 or later" );
         }
 
-        workers = Executors.newFixedThreadPool( config.getWorkerThreadCount(),
-                                                new WorkerThreadFactory( config.getName(), config.getCounter() ) );
+        this.config = config;
+
+        if ( config.isVirtualWorkerThreads() ) {
+            workers = VirtualThreads.newExecutor( config.getName(), config.getCounter() );
+        } else {
+            workers = Executors.newFixedThreadPool( config.getWorkerThreadCount(),
+                                                    new WorkerThreadFactory( config.getName(), config.getCounter() ) );
+        }
         fiberFactory = new PoolFiberFactory( workers );
 
-        BufferSource buffers = new BufferQueue( config.getBufferSlizeSize(), config.getBufferAllocationSize() );
+        buffers = new BufferQueue( config );
+
+        if ( config.getBufferIdleTime() > 0 ) {
+            register( new BufferTrimmer( config, buffers ) );
+        }
+
+        if ( null != config.getMetricsReporter() ) {
+            register( new MetricsReporting( config, metrics ) );
+        }
+
+        metrics.gauge( Metrics.BUFFERS_ALLOCATED, new Gauge() {
+            @Override
+            public long value() {
+                return buffers.allocated();
+            }
+        } );
+        metrics.gauge( Metrics.BUFFERS_POOLED, new Gauge() {
+            @Override
+            public long value() {
+                return buffers.pooled();
+            }
+        } );
+
+        TimingWheel timers = null;
+
+        if ( config.getIdleTimeout() > 0
+             || config.getReadTimeout() > 0
+             || config.getWriteTimeout() > 0
+             || config.getConnectTimeout() > 0 )
+        {
+            timers = register( new TimingWheel( config ) );
+        }
+
+        boolean nonBlocking = null != messageDecoder;
+
+        ReadSelector[] readSelectors = new ReadSelector[config.getSelectorCount()];
+        WriteSelector[] writeSelectors = new WriteSelector[config.getSelectorCount()];
+        SelectorGroup readSelectorGroup = new SelectorGroup( readSelectors );
+
+        Publisher<Event> readNext;
+        ReadyHandler readyHandler;
+        Publisher<Event> addToReadSelector;
+        DirectEngine engine = null;
+        SessionLanes lanes = null;
+
+        if ( ExecutionEngine.Fibers != config.getExecutionEngine() ) {
+            Callback<Event> reader;
+
+            if ( nonBlocking ) {
+                reader = new ReadAvailable( messageDecoder,
+                                            DirectEngine.SELECT,
+                                            failed,
+                                            config.getBufferMaximumSize(),
+                                            metrics );
+            } else {
+                ReadOneMessage readOneMessage = new ReadOneMessage( messageReader, DirectEngine.READ_AGAIN, failed );
+
+                reader = new CheckForReadReadiness( DirectEngine.SELECT,
+                                                    new CallbackPublisher<DataEvent<ByteBuffer>>( readOneMessage ),
+                                                    failed,
+                                                    metrics );
+            }
+
+            Executor[] executors;
+
+            if ( ExecutionEngine.Lanes == config.getExecutionEngine() ) {
+                lanes = new SessionLanes( config );
+                executors = lanes.executors();
+            } else {
+                executors = new Executor[]{ workers };
+            }
+
+            engine = new DirectEngine( executors, reader, readSelectorGroup, batchTasks( config ) );
+
+            readNext = engine;
+            readyHandler = engine;
+            addToReadSelector = new CallbackPublisher<Event>( readSelectorGroup );
+        } else {
+            // Count sessions in to, and out of, the queues that feed the worker threads and selectors
+            readNext = new MeteredPublisher<Event>( this.readNext, metrics.counter( Metrics.READ_NEXT_DEPTH ) );
+            readyHandler = new PublishReady( readNext );
+            addToReadSelector = new MeteredPublisher<Event>( this.addToReadSelector,
+                                                             metrics.counter( Metrics.READ_SELECTOR_DEPTH ) );
+
+            Publisher<DataEvent<ByteBuffer>> read = new MeteredPublisher<DataEvent<ByteBuffer>>(
+                this.read, metrics.counter( Metrics.READ_DEPTH ) );
+
+            this.addToReadSelector.subscribe( newFiber(), new MeteredCallback<Event>(
+                readSelectorGroup, metrics.counter( Metrics.READ_SELECTOR_DEPTH ) ) );
+
+            Fiber readFiber = register( fiberFactory.create( new ExecutorBatchExecutor( workers, batchTasks( config ) ) ) );
+
+            if ( nonBlocking ) {
+                ReadAvailable reader = new ReadAvailable( messageDecoder,
+                                                          addToReadSelector,
+                                                          failed,
+                                                          config.getBufferMaximumSize(),
+                                                          metrics );
+                this.readNext.subscribe( readFiber, new MeteredCallback<Event>(
+                    reader, metrics.counter( Metrics.READ_NEXT_DEPTH ) ) );
+            } else {
+                CheckForReadReadiness reader = new CheckForReadReadiness( addToReadSelector, read, failed, metrics );
+                this.readNext.subscribe( readFiber, new MeteredCallback<Event>(
+                    reader, metrics.counter( Metrics.READ_NEXT_DEPTH ) ) );
+
+                Fiber producerThread = newFiber();
+                this.read.subscribeOnProducerThread( producerThread, new MeteredCallback<DataEvent<ByteBuffer>>(
+                    new ReadOneMessage( messageReader, readAgain, failed ), metrics.counter( Metrics.READ_DEPTH ) ) );
+                readAgain.subscribe( producerThread, reader );
+            }
+        }
+
+        Publisher<Event> newConnections = new MultiPublisher<Event>(
+            opened, config.isReadUponConnect() ? readNext : addToReadSelector );
+        SessionFactory sessionFactory = new SessionFactory( buffers,
+                                                            addToWriteSelector,
+                                                            writability,
+                                                            failed,
+                                                            closed,
+                                                            engine,
+                                                            timers,
+                                                            config,
+                                                            metrics,
+                                                            nonBlocking || config.isRetainSelectionKeys() );
+        Admission admission = new Admission( config, metrics );
+
+        // Without an address to listen on, all connections are outbound
+        if ( null != config.getBindAddress() ) {
+            Acceptor first = null;
+
+            for ( int i = 0; i < config.getAcceptorCount(); i++ ) {
+                Acceptor shared = config.isReusePort() ? null : first;
+                Acceptor acceptor = new Acceptor( i, shared, config, newConnections, sessionFactory, admission );
+
+                if ( null == first ) {
+                    first = acceptor;
+                }
+
+                register( acceptor );
+            }
+        }
+
+        connector = register( new Connector( config, newConnections, sessionFactory, timers ) );
 
-        register( new Acceptor(
-            config,
-            new MultiPublisher<Event>( opened, config.isReadUponConnect() ? readNext : addToReadSelector ),
-            new SessionFactory( buffers, addToWriteSelector, failed, closed ) ) );
+        if ( config.getOverloadQueueWait() > 0 ) {
+            Executor[] readers = null == lanes ? new Executor[]{ workers } : lanes.executors();
 
-        addToReadSelector.subscribe( newFiber(), register( new ReadSelector( readNext, failed, config ) ) );
+            register( new OverloadDetector( config, readers, admission, metrics ) );
+        }
 
-        CheckForReadReadiness reader = new CheckForReadReadiness( addToReadSelector, read, failed, buffers );
-        readNext.subscribe( register( fiberFactory.create( new ExecutorBatchExecutor( workers ) ) ), reader );
+        for ( int i = 0; i < readSelectors.length; i++ ) {
+            readSelectors[i] = register( new ReadSelector( i, readyHandler, failed, config, metrics ) );
+            writeSelectors[i] = register( new WriteSelector( i, failed, config, metrics ) );
+        }
 
-        Fiber producerThread = newFiber();
-        read.subscribeOnProducerThread( producerThread, new ReadOneMessage( messageReader, readAgain, failed ) );
-        readAgain.subscribe( producerThread, reader );
+        // Disposed of after the selectors, which hand sessions to them
+        if ( null != lanes ) {
+            register( lanes );
+        }
 
-        addToWriteSelector.subscribe( newFiber(), register( new WriteSelector( failed, config ) ) );
+        addToWriteSelector.subscribe( newFiber(), new SelectorGroup( writeSelectors ) );
 
         failed.subscribe( newFiber(), new DisconnectFailedSessions() );
 
-        closed.subscribe( newFiber(), new ReturnSessionBuffers() );
+        closed.subscribe( newFiber(), new ReturnSessionBuffers( metrics ) );
+        closed.subscribe( newFiber(), admission );
     }
 
     @Override
@@ -88,10 +316,26 @@ public class JetIO implements Disposable, Startable {
         for ( Lifecycle component : components ) {
             component.start();
         }
+
+        if ( config.isJmxEnabled() ) {
+            try {
+                jmx = new JmxMetrics( metrics, config.getName(), config.getCounter() );
+            } catch( JMException e ) {
+                throw new IOException( "unable to register metrics with JMX", e );
+            }
+        }
     }
 
     @Override
     public void dispose() {
+        if ( null != jmx ) {
+            try {
+                jmx.unregister();
+            } catch( JMException e ) {
+                logger.warn( "unable to unregister metrics from JMX", e );
+            }
+        }
+
         for ( Fiber fiber : fibers ) {
             fiber.dispose();
         }
@@ -105,6 +349,48 @@ public class JetIO implements Disposable, Startable {
         workers.shutdownNow();
     }
 
+    /**
+     * Start making a connection out to another host. Once established, it is a {@link Session} like any accepted one,
+     * published on {@link #opened()} and read by the same reader.
+     *
+     * @param address Address to connect to
+     *
+     * @return Handle on the connection being made
+     */
+    public ConnectFuture connect( SocketAddress address ) {
+        return connector.connect( address, null );
+    }
+
+    /**
+     * Create a pool of connections out to another host, which starts connecting right away
+     *
+     * @param address Address to connect to
+     * @param size    Number of connections to keep
+     *
+     * @return Pool of connections
+     */
+    public ConnectionPool connectionPool( SocketAddress address, int size ) {
+        return new ConnectionPool( connector, address, size, config );
+    }
+
+    /**
+     * Allocate a buffer from the pool that can be written to many sessions, which is returned to the pool once it has
+     * been written to all of them and released by the caller.
+     *
+     * @param minCapacity Minimum capacity of the buffer, in bytes
+     *
+     * @return Shared buffer, cleared and ready to be filled in
+     *
+     * @throws IllegalArgumentException if larger than the {@link Configuration#getBufferMaximumSize() largest buffer}
+     */
+    public SharedBuffer allocateShared( int minCapacity ) {
+        ByteBuffer buffer = buffers.acquire( minCapacity );
+
+        buffer.clear();
+
+        return new SharedBuffer( buffers, buffer );
+    }
+
     /**
      * Channel that represents sessions that have been opened.
      *
@@ -123,6 +409,29 @@ public class JetIO implements Disposable, Startable {
         return closed;
     }
 
+    /**
+     * Channel that represents sessions whose {@link Session#isWritable() writability} has changed, as they crossed
+     * their high or low water mark. This is published from whatever thread was writing to, or flushing, the session.
+     *
+     * @return {@link Subscriber} that can be used to subscribe to writability notifications
+     */
+    public Subscriber<Event> writability() {
+        return writability;
+    }
+
+    /**
+     * Counters, histograms and gauges describing the work this instance is doing
+     *
+     * @return Metrics for this instance
+     */
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    private static int batchTasks( Configuration config ) {
+        return config.getWorkerBatchTasks() > 0 ? config.getWorkerBatchTasks() : Integer.MAX_VALUE;
+    }
+
     private Fiber newFiber() {
         return register( fiberFactory.create() );
     }
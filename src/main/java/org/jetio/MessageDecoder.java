@@ -0,0 +1,31 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Component that incrementally decodes messages off of a session without ever blocking.
+ *
+ * This is the non-blocking counterpart to {@link MessageReader}. Rather than reading a message off of the session
+ * itself, it is fed the bytes that have arrived so far, and should consume as many <b>COMPLETE MESSAGES</b> as the
+ * buffer contains. Any bytes left remaining in the buffer are retained for the session, and presented again with newly
+ * arrived data appended to them on the next call.
+ *
+ * It should be re-entrant and <b>WILL</b> be called by multiple threads, but never concurrently for the same session.
+ *
+ * Decoders for common framing schemes are provided in {@link org.jetio.codec}.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public interface MessageDecoder {
+
+    /**
+     * Decode messages from the available data
+     *
+     * @param session Session the data was read from
+     * @param data    Data read so far, positioned at the first undecoded byte. Only valid for the duration of the call.
+     *
+     * @throws IOException if the data can not be decoded, which will cause the session to be closed
+     */
+    void decode( Session session, ByteBuffer data ) throws IOException;
+}
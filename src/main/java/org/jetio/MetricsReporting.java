@@ -0,0 +1,62 @@
+package org.jetio;
+
+import org.jetio.lifecycle.Lifecycle;
+import org.jetio.metrics.Metrics;
+import org.jetio.metrics.MetricsReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically hand {@link Metrics} to the configured {@link MetricsReporter}
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class MetricsReporting implements Runnable, Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger( MetricsReporting.class );
+
+    private final Configuration config;
+    private final Metrics metrics;
+    private final Thread thread;
+
+    MetricsReporting( Configuration config, Metrics metrics ) {
+        this.config = config;
+        this.metrics = metrics;
+
+        this.thread = new Thread( this, "metrics " + config.getName() + "-" + config.getCounter() );
+    }
+
+    @Override
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void dispose() {
+        thread.interrupt();
+
+        try {
+            thread.join( config.getDisposalWaitTime() );
+        } catch( InterruptedException e ) {
+            logger.error( "Interrupted while waiting for metrics thread to complete", e );
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while ( !Thread.interrupted() ) {
+                Thread.sleep( config.getMetricsReportInterval() );
+
+                try {
+                    config.getMetricsReporter().report( metrics );
+                } catch( RuntimeException e ) {
+                    logger.error( "Exception reporting metrics", e );
+                }
+            }
+        } catch( InterruptedException e ) {
+            logger.debug( "Thread interrupted, exiting", e );
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.jetio;
+
+/**
+ * What happens to new connections while the worker threads are {@link Configuration#getOverloadQueueWait()
+ * overloaded}
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public enum Overload {
+    /** Stop accepting, leaving new connections in the listen backlog until the workers catch up */
+    Pause,
+    /** Keep accepting, but close new connections straight away, so clients find out right away */
+    Reject
+}
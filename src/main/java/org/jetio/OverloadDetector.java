@@ -0,0 +1,152 @@
+package org.jetio;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.jetio.lifecycle.Lifecycle;
+import org.jetio.metrics.Histogram;
+import org.jetio.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically measure how long work waits for a worker thread, by submitting a probe task to each executor that
+ * reads sessions and timing how long it takes to start. Once the longest wait goes past the configured
+ * {@link Configuration#getOverloadQueueWait() limit}, {@link Admission} is told to turn new connections away, until the
+ * wait falls back to half of the limit.
+ *
+ * A probe that still hasn't run when checked counts as having waited so far, so a pool that is stuck entirely is
+ * noticed as well.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class OverloadDetector implements Runnable, Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger( OverloadDetector.class );
+
+    private final Configuration config;
+    private final Admission admission;
+    private final Probe[] probes;
+    private final long overloadedWait;
+    private final long recoveredWait;
+    private final Thread thread;
+    private boolean overloaded;
+
+    OverloadDetector( Configuration config, Executor[] executors, Admission admission, Metrics metrics ) {
+        this.config = config;
+        this.admission = admission;
+        this.overloadedWait = TimeUnit.MILLISECONDS.toNanos( config.getOverloadQueueWait() );
+        this.recoveredWait = overloadedWait / 2;
+
+        Histogram queueWait = metrics.histogram( Metrics.QUEUE_WAIT );
+
+        this.probes = new Probe[executors.length];
+
+        for ( int i = 0; i < executors.length; i++ ) {
+            probes[i] = new Probe( executors[i], queueWait );
+        }
+
+        this.thread = new Thread( this, "overload " + config.getName() + "-" + config.getCounter() );
+    }
+
+    @Override
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void dispose() {
+        thread.interrupt();
+
+        try {
+            thread.join( config.getDisposalWaitTime() );
+        } catch( InterruptedException e ) {
+            logger.error( "Interrupted while waiting for overload detection thread to complete", e );
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while ( !Thread.interrupted() ) {
+                for ( Probe probe : probes ) {
+                    probe.submit();
+                }
+
+                Thread.sleep( config.getOverloadCheckInterval() );
+
+                check();
+            }
+        } catch( InterruptedException e ) {
+            logger.debug( "Thread interrupted, exiting", e );
+        }
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        long wait = 0;
+
+        for ( Probe probe : probes ) {
+            wait = Math.max( wait, probe.waited( now ) );
+        }
+
+        if ( !overloaded && wait > overloadedWait ) {
+            overloaded = true;
+
+            logger.warn( "Overloaded, work waited {}ms for a worker, turning new connections away",
+                         TimeUnit.NANOSECONDS.toMillis( wait ) );
+        } else if ( overloaded && wait <= recoveredWait ) {
+            overloaded = false;
+
+            logger.info( "Recovered, work waited {}ms for a worker, accepting new connections",
+                         TimeUnit.NANOSECONDS.toMillis( wait ) );
+        } else {
+            return;
+        }
+
+        admission.setOverloaded( overloaded );
+    }
+
+    /** Task that times its own wait to be run. Only one is outstanding per executor at a time. */
+    private static class Probe implements Runnable {
+        private final Executor executor;
+        private final Histogram queueWait;
+        private volatile boolean pending;
+        private volatile long submitted;
+        private volatile long waited;
+
+        Probe( Executor executor, Histogram queueWait ) {
+            this.executor = executor;
+            this.queueWait = queueWait;
+        }
+
+        void submit() {
+            if ( pending ) {
+                return;
+            }
+
+            pending = true;
+            submitted = System.nanoTime();
+
+            try {
+                executor.execute( this );
+            } catch( RejectedExecutionException e ) {
+                // Shutting down
+                pending = false;
+            }
+        }
+
+        long waited( long now ) {
+            return pending ? Math.max( waited, now - submitted ) : waited;
+        }
+
+        @Override
+        public void run() {
+            waited = System.nanoTime() - submitted;
+            queueWait.record( waited );
+            pending = false;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.jetio;
+
+import org.jetlang.channels.Publisher;
+
+/**
+ * Publish each readable session to a channel. A pool fiber queues the whole burst before it next runs, so it still
+ * reaches the worker threads as a single batch.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class PublishReady implements ReadyHandler {
+    private final Publisher<Event> readNext;
+
+    PublishReady( Publisher<Event> readNext ) {
+        this.readNext = readNext;
+    }
+
+    @Override
+    public void ready( Session[] sessions, int count ) {
+        for ( int i = 0; i < count; i++ ) {
+            readNext.publish( sessions[i].event() );
+        }
+    }
+}
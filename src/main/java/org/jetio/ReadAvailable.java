@@ -0,0 +1,158 @@
+package org.jetio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jetio.metrics.Counter;
+import org.jetio.metrics.Metrics;
+import org.jetlang.channels.Publisher;
+import org.jetlang.core.Callback;
+
+/**
+ * Read whatever is available from a session without blocking, feed it to a {@link MessageDecoder}, and then put the
+ * session back into the read selector.
+ *
+ * When a message outgrows the session's read buffer, the data so far is moved to a buffer of the next larger size, up
+ * to the {@link Configuration#getBufferMaximumSize() largest} one.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class ReadAvailable implements Callback<Event> {
+    /** Upper bound on reads per readiness event, so a single busy session can't monopolize a worker */
+    private static final int MAX_READS = 16;
+
+    private final MessageDecoder decoder;
+    private final Publisher<Event> addToReadSelector;
+    private final Publisher<DataEvent<IOException>> failed;
+    private final int maximumBufferSize;
+    private final Counter bytesRead;
+
+    ReadAvailable( MessageDecoder decoder,
+                   Publisher<Event> addToReadSelector,
+                   Publisher<DataEvent<IOException>> failed,
+                   int maximumBufferSize,
+                   Metrics metrics )
+    {
+        this.decoder = decoder;
+        this.addToReadSelector = addToReadSelector;
+        this.failed = failed;
+        this.maximumBufferSize = maximumBufferSize;
+        this.bytesRead = metrics.counter( Metrics.BYTES_READ );
+    }
+
+    @Override
+    public void onMessage( Event event ) {
+        Session session = event.session();
+
+        try {
+            read( session );
+        } catch( IOException e ) {
+            failed.publish( new DataEvent<IOException>( session, e ) );
+
+            return;
+        } catch( BufferExhaustedException e ) {
+            failed.publish( new DataEvent<IOException>( session, new IOException( "no buffer to read into", e ) ) );
+
+            return;
+        }
+
+        addToReadSelector.publish( event );
+    }
+
+    private void read( Session session ) throws IOException {
+        session.setNonBlocking();
+
+        ByteBuffer buffer = session.takeReadBuffer();
+
+        if ( null == buffer ) {
+            buffer = session.buffers().acquire();
+        }
+
+        boolean read = false;
+        boolean decoded = false;
+        boolean retained;
+
+        try {
+            for ( int i = 0; i < MAX_READS; i++ ) {
+                int count = session.channel().read( buffer );
+
+                if ( -1 == count ) {
+                    throw new EOFException();
+                } else if ( 0 == count ) {
+                    break;
+                }
+
+                bytesRead.add( count );
+                read = true;
+
+                // If the read didn't fill the buffer, the socket has been drained for now
+                boolean drained = buffer.hasRemaining();
+                int filled = buffer.position();
+
+                buffer = decode( session, buffer );
+                decoded |= buffer.position() < filled;
+
+                if ( drained ) {
+                    break;
+                }
+            }
+        } finally {
+            retained = buffer.position() > 0;
+
+            if ( retained ) {
+                session.retainReadBuffer( buffer );
+            } else {
+                session.buffers().release( buffer );
+            }
+        }
+
+        noteProgress( session.timeout(), read, decoded, retained );
+    }
+
+    /**
+     * A message is in progress while undecoded data is retained, and the read timeout runs from when the decoder last
+     * consumed anything, so a sender trickling in a message that never completes is caught.
+     */
+    private static void noteProgress( SessionTimeout timeout, boolean read, boolean decoded, boolean retained ) {
+        if ( !retained ) {
+            if ( read ) {
+                timeout.readFinished();
+            }
+        } else if ( decoded ) {
+            timeout.readFinished();
+            timeout.readStarted();
+        } else if ( read ) {
+            timeout.active();
+            timeout.readPending();
+        }
+    }
+
+    /** @return Buffer to continue reading into, a larger one if the decoder couldn't consume from a full buffer */
+    private ByteBuffer decode( Session session, ByteBuffer buffer ) throws IOException {
+        buffer.flip();
+
+        try {
+            decoder.decode( session, buffer );
+        } finally {
+            buffer.compact();
+        }
+
+        return buffer.hasRemaining() ? buffer : grow( session, buffer );
+    }
+
+    private ByteBuffer grow( Session session, ByteBuffer buffer ) throws IOException {
+        if ( buffer.capacity() >= maximumBufferSize ) {
+            throw new IOException( "message exceeds read buffer size of " + buffer.capacity() + " bytes" );
+        }
+
+        ByteBuffer larger = session.buffers().acquire( buffer.capacity() * 2 );
+
+        buffer.flip();
+        larger.put( buffer );
+
+        session.buffers().release( buffer );
+
+        return larger;
+    }
+}
@@ -1,29 +1,33 @@
 package org.jetio;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.jetlang.channels.Channel;
 import org.jetlang.channels.Publisher;
 import org.jetlang.core.Callback;
 
 /**
- * Invoke a {@link MessageReader} to read a single message, then spin it back around to possibly read again.
+ * Invoke a {@link BufferMessageReader} to read a single message, then spin it back around to possibly read again.
  *
  * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
  */
-class ReadOneMessage implements Callback<DataEvent<byte[]>> {
-    private final MessageReader messageReader;
+class ReadOneMessage implements Callback<DataEvent<ByteBuffer>> {
+    private final BufferMessageReader messageReader;
     private final Publisher<Event> readAgain;
     private final Channel<DataEvent<IOException>> failed;
 
-    ReadOneMessage( MessageReader messageReader, Publisher<Event> readAgain, Channel<DataEvent<IOException>> failed ) {
+    ReadOneMessage( BufferMessageReader messageReader,
+                    Publisher<Event> readAgain,
+                    Channel<DataEvent<IOException>> failed )
+    {
         this.messageReader = messageReader;
         this.readAgain = readAgain;
         this.failed = failed;
     }
 
     @Override
-    public void onMessage( DataEvent<byte[]> message ) {
+    public void onMessage( DataEvent<ByteBuffer> message ) {
         Session session = message.session();
 
         try {
@@ -32,8 +36,10 @@ class ReadOneMessage implements Callback<DataEvent<byte[]>> {
             failed.publish( new DataEvent<IOException>( session, e ) );
 
             return;
+        } finally {
+            session.timeout().readFinished();
         }
 
-        readAgain.publish( new Event( session ) );
+        readAgain.publish( session.event() );
     }
 }
@@ -3,7 +3,9 @@ package org.jetio;
 import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.util.Arrays;
 
+import org.jetio.metrics.Metrics;
 import org.jetlang.channels.Channel;
 
 /**
@@ -12,31 +14,71 @@ import org.jetlang.channels.Channel;
  * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
  */
 class ReadSelector extends AbstractSelector {
-    private final Channel<Event> readNext;
+    private final ReadyHandler readyHandler;
+    /** Sessions found readable in the current pass, handed over together once it is done */
+    private Session[] ready = new Session[64];
+    private int readyCount;
 
-    ReadSelector( Channel<Event> readNext, Channel<DataEvent<IOException>> failed, Configuration config )
+    ReadSelector( int index,
+                  ReadyHandler readyHandler,
+                  Channel<DataEvent<IOException>> failed,
+                  Configuration config,
+                  Metrics metrics )
         throws IOException
     {
-        super( SelectionOp.Read, config, failed );
+        super( SelectionOp.Read, index, config, failed, metrics );
 
-        this.readNext = readNext;
+        this.readyHandler = readyHandler;
     }
 
     @Override
     protected void selected( SelectionKey key, Session session ) {
-        // Take the key out of the selector, since we will (likely) be handling reads blocking-style for now.
-        // It is probably necessary to remove the key here, since we will do the read in another thread, and
-        // do not want to end up firing two events for it. (In case this loop is fast enough)
-        key.cancel();
+        SelectionKeys keys = session.selectionKeys();
 
-        readNext.publish( new Event( session ) );
+        // We will do the read in another thread, and do not want to end up firing two events for it.
+        // (In case this loop is fast enough)
+        if ( keys.isRetained() ) {
+            // Stop selecting until the read is done. If the session is switched into blocking mode to read
+            // a message, the key will be cancelled at that point.
+            keys.interested( op, false );
+        } else {
+            // Take the key out of the selector, since we will (likely) be handling reads blocking-style for now.
+            keys.cancel( op );
+        }
+
+        if ( readyCount == ready.length ) {
+            ready = Arrays.copyOf( ready, readyCount << 1 );
+        }
+
+        ready[readyCount++] = session;
+    }
+
+    @Override
+    protected void selectedAll() {
+        if ( 0 == readyCount ) {
+            return;
+        }
+
+        try {
+            readyHandler.ready( ready, readyCount );
+        } finally {
+            Arrays.fill( ready, 0, readyCount, null );
+            readyCount = 0;
+        }
     }
 
     @Override
     protected void addToSelector( Session session ) throws IOException {
-        logger.debug( "adding {} to selector", session, op );
+        if ( logger.isDebugEnabled() ) {
+            logger.debug( "adding {} to {} selector", session, op );
+        }
 
         session.setNonBlocking();
-        session.selectionKeys().set( op, session.channel().register( selector, op.op(), session ) );
+
+        SelectionKeys keys = session.selectionKeys();
+
+        if ( !keys.isRetained() || !keys.interested( op, true ) ) {
+            keys.set( op, session.channel().register( selector, op.op(), session ) );
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package org.jetio;
+
+/**
+ * Takes the sessions that a read selector found readable in a single pass, all at once
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+interface ReadyHandler {
+    /**
+     * @param sessions Readable sessions, which the selector reuses once this returns
+     * @param count    Number of sessions
+     */
+    void ready( Session[] sessions, int count );
+}
@@ -1,11 +1,29 @@
 package org.jetio;
 
+import org.jetio.metrics.Counter;
+import org.jetio.metrics.Metrics;
 import org.jetlang.core.Callback;
 
 /** @author <a href="mailto:peter.royal@pobox.com">peter royal</a> */
 class ReturnSessionBuffers implements Callback<Event> {
+    private final Counter open;
+    private final Counter closed;
+
+    ReturnSessionBuffers( Metrics metrics ) {
+        this.open = metrics.counter( Metrics.OPEN );
+        this.closed = metrics.counter( Metrics.CLOSED );
+    }
+
     @Override
     public void onMessage( Event message ) {
-        ( (SessionBufferSource) message.session().buffers() ).release();
+        Session session = message.session();
+
+        session.releaseReadBuffer();
+        session.discardWriteQueue();
+
+        ( (SessionBufferSource) session.buffers() ).release();
+
+        open.decrement();
+        closed.increment();
     }
 }
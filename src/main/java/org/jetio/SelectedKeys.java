@@ -0,0 +1,129 @@
+package org.jetio;
+
+import java.lang.reflect.Field;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Keys selected in one pass of a selector loop, kept in an array that is reused from pass to pass.
+ *
+ * Where the JDK allows it, this replaces the selector's own selected-key set, so that the selector adds keys straight
+ * to the array and walking them needs no iterator. Otherwise the keys are gathered from the selector's set after each
+ * select, and that set is cleared.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+final class SelectedKeys extends AbstractSet<SelectionKey> {
+    private SelectionKey[] keys = new SelectionKey[256];
+    private int size;
+
+    /**
+     * Replace the selector's selected-key set with this one
+     *
+     * @return True if installed, false if the selector's implementation couldn't be reached
+     */
+    boolean install( Selector selector ) {
+        try {
+            Class<?> impl = Class.forName( "sun.nio.ch.SelectorImpl", false, Selector.class.getClassLoader() );
+
+            if ( !impl.isInstance( selector ) ) {
+                return false;
+            }
+
+            Field selectedKeys = impl.getDeclaredField( "selectedKeys" );
+            Field publicSelectedKeys = impl.getDeclaredField( "publicSelectedKeys" );
+
+            selectedKeys.setAccessible( true );
+            publicSelectedKeys.setAccessible( true );
+
+            selectedKeys.set( selector, this );
+            publicSelectedKeys.set( selector, this );
+
+            return true;
+        } catch( Exception e ) {
+            // Not the implementation we know, or (from Java 9 on) sun.nio.ch isn't opened to us
+            return false;
+        }
+    }
+
+    /** Take the keys out of a selector's own selected-key set, when this one couldn't be installed in its place */
+    void gather( Set<SelectionKey> selected ) {
+        for ( SelectionKey key : selected ) {
+            add( key );
+        }
+
+        selected.clear();
+    }
+
+    SelectionKey get( int index ) {
+        return keys[index];
+    }
+
+    /** Forget the keys of the last pass */
+    void reset() {
+        Arrays.fill( keys, 0, size, null );
+        size = 0;
+    }
+
+    @Override
+    public boolean add( SelectionKey key ) {
+        if ( null == key ) {
+            return false;
+        }
+
+        if ( size == keys.length ) {
+            keys = Arrays.copyOf( keys, size << 1 );
+        }
+
+        keys[size++] = key;
+
+        return true;
+    }
+
+    /** Keys are only ever reset as a whole, so the selector never finds one already here, and can't remove one */
+    @Override
+    public boolean contains( Object o ) {
+        return false;
+    }
+
+    @Override
+    public boolean remove( Object o ) {
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<SelectionKey> iterator() {
+        return new Iterator<SelectionKey>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public SelectionKey next() {
+                if ( next >= size ) {
+                    throw new NoSuchElementException();
+                }
+
+                return keys[next++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package org.jetio;
 
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.SelectionKey;
 import java.util.EnumMap;
 import java.util.Map;
@@ -15,9 +16,16 @@ class SelectionKeys {
         new EnumMap<SelectionOp, AtomicReference<SelectionKey>>( SelectionOp.class );
 
     private final Session session;
+    private final boolean retained;
 
-    SelectionKeys( Session session ) {
+    /**
+     * @param session  Session the keys are for
+     * @param retained True if keys should stay registered while the session is non-blocking, with their interest being
+     *                 toggled, rather than being cancelled and re-registered
+     */
+    SelectionKeys( Session session, boolean retained ) {
         this.session = session;
+        this.retained = retained;
         for ( SelectionOp op : SelectionOp.values() ) {
             keys.put( op, new AtomicReference<SelectionKey>() );
         }
@@ -37,10 +45,46 @@ class SelectionKeys {
         }
     }
 
+    /**
+     * Should keys stay registered, with {@link #interested(SelectionOp, boolean)} toggling their interest?
+     *
+     * @return True if keys are retained
+     */
+    boolean isRetained() {
+        return retained;
+    }
+
     boolean hasKey( SelectionOp op ) {
         return null != keys.get( op ).get();
     }
 
+    /**
+     * Change the interest of the key for the specified operation, while leaving it registered with its selector
+     *
+     * @param op         {@link SelectionOp} to change the interest of
+     * @param interested True if the key should be selected for the operation
+     *
+     * @return False if there is no valid key for the operation, and the channel needs to be registered
+     */
+    boolean interested( SelectionOp op, boolean interested ) {
+        AtomicReference<SelectionKey> reference = keys.get( op );
+        SelectionKey key = reference.get();
+
+        if ( null == key ) {
+            return false;
+        }
+
+        try {
+            key.interestOps( interested ? op.op() : 0 );
+
+            return true;
+        } catch( CancelledKeyException e ) {
+            reference.compareAndSet( key, null );
+
+            return false;
+        }
+    }
+
     /** Cancel all keys */
     void cancel() {
         for ( AtomicReference<SelectionKey> reference : keys.values() ) {
@@ -0,0 +1,13 @@
+package org.jetio;
+
+/**
+ * How new sessions are assigned to one of the selectors. A session stays with its selector for its entire life.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public enum SelectorAssignment {
+    /** Assign each new session to the next selector in turn */
+    RoundRobin,
+    /** Assign sessions based on a hash of their remote address */
+    Hash
+}
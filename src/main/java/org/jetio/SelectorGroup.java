@@ -0,0 +1,21 @@
+package org.jetio;
+
+import org.jetlang.core.Callback;
+
+/**
+ * Route sessions to the selector they have been assigned to
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class SelectorGroup implements Callback<Event> {
+    private final AbstractSelector[] selectors;
+
+    SelectorGroup( AbstractSelector... selectors ) {
+        this.selectors = selectors;
+    }
+
+    @Override
+    public void onMessage( Event event ) {
+        selectors[event.session().selector()].onMessage( event );
+    }
+}
@@ -6,7 +6,9 @@ import java.nio.channels.SocketChannel;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.jetio.metrics.Metrics;
 import org.jetlang.channels.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,12 +23,21 @@ public class Session {
 
     private final ConcurrentMap<Object, Object> properties = new ConcurrentHashMap<Object, Object>();
     private final AtomicBoolean sentClosedEvent = new AtomicBoolean( false );
+    /** Partially decoded data that is waiting on more bytes to arrive, when reading with a {@link MessageDecoder} */
+    private final AtomicReference<ByteBuffer> readBuffer = new AtomicReference<ByteBuffer>();
+    /** Events only carry the session, so one is shared by every hop through the pipeline rather than one per hop */
+    private final Event event = new Event( this );
 
     private final WriteQueue writeQueue;
     private final SelectionKeys selectionKeys;
+    private final SessionTimeout timeout;
     private final SocketChannel channel;
     private final Publisher<Event> closed;
-    private final BufferSource buffers;
+    private final SessionBufferSource buffers;
+    private final int selector;
+    private boolean outbound;
+    /** Only set when sessions are read by a {@link DirectEngine} */
+    private SessionDriver driver;
     /**
      * Store our own copy of the blocking status of the channel,
      * as checking it on the Channel requires acquiring a lock
@@ -35,15 +46,22 @@ public class Session {
 
     Session( SocketChannel channel,
              Publisher<Event> addToWriteSelector,
+             Publisher<Event> writability,
              Publisher<DataEvent<IOException>> failed,
              Publisher<Event> closed,
-             BufferSource buffers )
+             SessionBufferSource buffers,
+             int selector,
+             boolean retainSelectionKeys,
+             Configuration config,
+             Metrics metrics )
     {
         this.channel = channel;
+        this.selector = selector;
         this.closed = closed;
         this.buffers = buffers;
-        this.writeQueue = new WriteQueue( this, addToWriteSelector, failed, buffers );
-        this.selectionKeys = new SelectionKeys( this );
+        this.writeQueue = new WriteQueue( this, addToWriteSelector, writability, failed, buffers, config, metrics );
+        this.selectionKeys = new SelectionKeys( this, retainSelectionKeys );
+        this.timeout = new SessionTimeout( this, config );
         this.blocking = channel.isBlocking();
     }
 
@@ -56,6 +74,49 @@ public class Session {
         return channel;
     }
 
+    /**
+     * Get the index of the read and write selectors this session is pinned to
+     *
+     * @return Selector index
+     */
+    int selector() {
+        return selector;
+    }
+
+    /**
+     * Get the event to publish for this session, as an {@link Event} carries nothing but its session
+     *
+     * @return Event for this session
+     */
+    Event event() {
+        return event;
+    }
+
+    /**
+     * Check to see if this session was opened by {@link JetIO#connect connecting} to another host, rather than accepted
+     *
+     * @return True if this is an outbound connection
+     */
+    public boolean isOutbound() {
+        return outbound;
+    }
+
+    void setOutbound() {
+        this.outbound = true;
+    }
+
+    SessionDriver driver() {
+        return driver;
+    }
+
+    void setDriver( SessionDriver driver ) {
+        this.driver = driver;
+    }
+
+    SessionTimeout timeout() {
+        return timeout;
+    }
+
     SelectionKeys selectionKeys() {
         return selectionKeys;
     }
@@ -106,14 +167,123 @@ public class Session {
      *
      * Otherwise, data is added to the write queue.
      *
+     * Buffers become the property of the session, and are released to {@link #buffers()} once written.
+     *
      * @param buffers {@link ByteBuffer}s containing messages to write
+     *
+     * @throws WriteRejectedException if the session is not writable and is configured to reject writes
+     * @see #isWritable()
      */
     public void write( ByteBuffer... buffers ) {
-        writeQueue.add( buffers );
+        writeQueue.add( buffers, null );
+    }
+
+    /**
+     * Write a shared buffer to this session, which holds a reference to it until written. The buffer isn't modified,
+     * the session writes from a view of it.
+     *
+     * Behaves the same as {@link #write(ByteBuffer...)} otherwise.
+     *
+     * @param buffer Buffer to write, flipped ready to be read from
+     *
+     * @throws WriteRejectedException if the session is not writable and is configured to reject writes
+     * @throws IllegalStateException if the buffer has already been released back to the pool
+     */
+    public void write( SharedBuffer buffer ) {
+        writeQueue.add( buffer.retain(), buffer );
+    }
+
+    /**
+     * Write a message to this session, getting a handle that is completed once it has been written to the socket.
+     *
+     * Behaves the same as {@link #write(ByteBuffer...)} otherwise.
+     *
+     * @param buffers {@link ByteBuffer}s containing messages to write
+     *
+     * @return Pooled handle on the completion of the write, which should be {@link WriteFuture#release() released}
+     *
+     * @throws WriteRejectedException if the session is not writable and is configured to reject writes
+     */
+    public WriteFuture writeWithFuture( ByteBuffer... buffers ) {
+        WriteFuture future = writeQueue.newFuture();
+
+        try {
+            writeQueue.add( buffers, future );
+        } catch( RuntimeException e ) {
+            // Rejected before it was queued, so nobody else will ever complete it
+            future.release();
+
+            throw e;
+        }
+
+        return future;
+    }
+
+    /**
+     * Set a listener to be told about progress in writing this session's queued data to its socket
+     *
+     * @param listener Listener to notify, or null to remove the current one
+     */
+    public void setFlushListener( FlushListener listener ) {
+        writeQueue.setFlushListener( listener );
+    }
+
+    /**
+     * Check to see if this session can accept more writes without going over its high water mark. Changes are
+     * published on {@link JetIO#writability()}.
+     *
+     * @return True if the session is below its high water mark
+     */
+    public boolean isWritable() {
+        return writeQueue.isWritable();
+    }
+
+    boolean isWriteQueueEmpty() {
+        return writeQueue.isEmpty();
+    }
+
+    void discardWriteQueue() {
+        writeQueue.discard();
     }
 
-    void processWriteQueue() throws IOException {
-        writeQueue.process();
+    /**
+     * Write as much of the queued data as possible
+     *
+     * @return True if the write queue is now empty
+     */
+    boolean processWriteQueue() throws IOException {
+        return writeQueue.process();
+    }
+
+    /**
+     * Take ownership of any partially decoded data retained for this session
+     *
+     * @return Buffer with retained data in write mode, or null if there is none
+     */
+    ByteBuffer takeReadBuffer() {
+        return readBuffer.getAndSet( null );
+    }
+
+    /**
+     * Retain partially decoded data until more bytes arrive. If the session has been closed, it is released instead.
+     *
+     * @param buffer Buffer with retained data in write mode
+     */
+    void retainReadBuffer( ByteBuffer buffer ) {
+        readBuffer.set( buffer );
+
+        // If we lost a race with close(), make sure the buffer doesn't get stranded
+        if ( isClosed() ) {
+            releaseReadBuffer();
+        }
+    }
+
+    void releaseReadBuffer() {
+        ByteBuffer buffer = readBuffer.getAndSet( null );
+
+        if ( null != buffer ) {
+            buffers.release( buffer );
+        }
     }
 
     /**
@@ -133,6 +303,7 @@ public class Session {
     public void close() {
         if ( sentClosedEvent.compareAndSet( false, true ) ) {
             selectionKeys.cancel();
+            timeout.cancel();
 
             try {
                 channel.close();
@@ -140,7 +311,7 @@ public class Session {
                 logger.info( "Exception closing " + this, e );
             }
 
-            closed.publish( new Event( this ) );
+            closed.publish( event );
         }
     }
 
@@ -156,9 +327,9 @@ public class Session {
     /**
      * Get the source of <em>write</em> buffers associated with this session.
      *
-     * @return {@link BufferSource} for this session
+     * @return {@link SizedBufferSource} for this session
      */
-    public BufferSource buffers() {
+    public SizedBufferSource buffers() {
         return buffers;
     }
 }
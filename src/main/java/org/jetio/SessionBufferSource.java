@@ -6,12 +6,17 @@ import java.util.Collection;
 import java.util.Queue;
 
 /** @author <a href="mailto:peter.royal@pobox.com">peter royal</a> */
-class SessionBufferSource implements BufferSource {
+class SessionBufferSource implements SizedBufferSource {
     private final Queue<ByteBuffer> queue;
-    private final BufferSource source;
+    private final SizedBufferSource source;
+    /** Only buffers of the default size are kept around for reuse by the session */
+    private final int size;
+    /** Once the session's buffers have been returned, anything released afterwards goes straight back to the source */
+    private boolean released;
 
-    SessionBufferSource( BufferSource source ) {
+    SessionBufferSource( SizedBufferSource source, int size ) {
         this.source = source;
+        this.size = size;
         this.queue = new ArrayDeque<ByteBuffer>();
     }
 
@@ -32,17 +37,49 @@ class SessionBufferSource implements BufferSource {
         return buffer;
     }
 
+    @Override
+    public ByteBuffer acquire( int minCapacity ) {
+        if ( minCapacity <= size && minCapacity > size / 2 ) {
+            return acquire();
+        }
+
+        ByteBuffer buffer = source.acquire( minCapacity );
+
+        buffer.clear();
+
+        return buffer;
+    }
+
     void release() {
         synchronized( queue ) {
             source.release( queue );
             queue.clear();
+
+            released = true;
         }
     }
 
     @Override
-    public void release( Collection<ByteBuffer> buffers ) {
+    public void release( ByteBuffer buffer ) {
+        if ( buffer.capacity() != size ) {
+            source.release( buffer );
+
+            return;
+        }
+
         synchronized( queue ) {
-            queue.addAll( buffers );
+            if ( released ) {
+                source.release( buffer );
+            } else {
+                queue.add( buffer );
+            }
+        }
+    }
+
+    @Override
+    public void release( Collection<ByteBuffer> buffers ) {
+        for ( ByteBuffer buffer : buffers ) {
+            release( buffer );
         }
     }
 }
@@ -0,0 +1,118 @@
+package org.jetio;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Moves a single session through its reads for the {@link DirectEngine}.
+ *
+ * A session is idle while it sits in its read selector. Once readable it is scheduled onto a worker thread, exactly
+ * once no matter how many times it is reported as readable, and is reading until the reader asks for it to be
+ * selected again. Only one thread reads a session at a time, so its messages are handled in the order they arrived.
+ * A session that keeps on having more to read gives up its thread every so often, and is scheduled again behind
+ * whatever else is waiting for it.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class SessionDriver implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger( SessionDriver.class );
+
+    /** Upper bound on messages read per turn, so a single busy session can't monopolize its thread */
+    private static final int MAX_READS = 16;
+
+    private enum State {
+        Idle, Scheduled, Reading, Closed
+    }
+
+    private enum Next {
+        /** The reader failed the session, which will be closed */
+        Done,
+        ReadAgain,
+        Select
+    }
+
+    private final AtomicReference<State> state = new AtomicReference<State>( State.Idle );
+    private final Session session;
+    private final DirectEngine engine;
+    private final Executor executor;
+    /** What the reader asked for, only touched by the thread that is reading */
+    private Next next;
+
+    SessionDriver( Session session, DirectEngine engine ) {
+        this.session = session;
+        this.engine = engine;
+        this.executor = engine.executorFor( session );
+    }
+
+    void readable() {
+        if ( schedule() ) {
+            executor.execute( this );
+        }
+    }
+
+    /**
+     * Claim the session for reading, to be run by the caller
+     *
+     * @return False if it was already scheduled
+     */
+    boolean schedule() {
+        return state.compareAndSet( State.Idle, State.Scheduled );
+    }
+
+    Executor executor() {
+        return executor;
+    }
+
+    void readAgain() {
+        next = Next.ReadAgain;
+    }
+
+    void select() {
+        next = Next.Select;
+    }
+
+    @Override
+    public void run() {
+        Event event = session.event();
+
+        state.set( State.Reading );
+
+        try {
+            int reads = 0;
+
+            do {
+                next = Next.Done;
+
+                engine.read( event );
+            } while ( Next.ReadAgain == next && ++reads < MAX_READS );
+        } catch( RuntimeException e ) {
+            // Left Reading, the session would never be scheduled again, so give up on it
+            logger.error( "Exception reading " + session + ", closing", e );
+
+            next = Next.Done;
+            session.close();
+        }
+
+        if ( Next.ReadAgain == next ) {
+            // Still more to read, go to the back of the line behind whoever else is waiting for this thread
+            state.set( State.Scheduled );
+
+            executor.execute( this );
+        } else if ( Next.Select == next ) {
+            // Idle first, the selector may find it readable again before we return
+            state.set( State.Idle );
+
+            engine.select( event );
+        } else {
+            state.set( State.Closed );
+        }
+    }
+
+    @Override
+    public String toString() {
+        return session + " " + state.get();
+    }
+}
@@ -1,8 +1,12 @@
 package org.jetio;
 
 import java.io.IOException;
+import java.net.SocketAddress;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jetio.metrics.Counter;
+import org.jetio.metrics.Metrics;
 import org.jetlang.channels.Publisher;
 
 /**
@@ -11,22 +15,110 @@ import org.jetlang.channels.Publisher;
  * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
  */
 class SessionFactory {
+    private final AtomicInteger next = new AtomicInteger();
     private final Publisher<Event> addToWriteSelector;
+    private final Publisher<Event> writability;
     private final Publisher<DataEvent<IOException>> failed;
     private final Publisher<Event> closed;
-    private final BufferSource buffers;
+    private final DirectEngine engine;
+    private final TimingWheel timers;
+    private final SizedBufferSource buffers;
+    private final int selectorCount;
+    private final SelectorAssignment selectorAssignment;
+    private final boolean retainSelectionKeys;
+    private final Configuration config;
+    private final Metrics metrics;
+    private final Counter accepted;
+    private final Counter connected;
+    private final Counter open;
+    private final Counter timedOut;
 
-    SessionFactory( BufferSource buffers,
+    SessionFactory( SizedBufferSource buffers,
                     Publisher<Event> addToWriteSelector,
+                    Publisher<Event> writability,
                     Publisher<DataEvent<IOException>> failed,
-                    Publisher<Event> closed ) {
+                    Publisher<Event> closed,
+                    DirectEngine engine,
+                    TimingWheel timers,
+                    Configuration config,
+                    Metrics metrics,
+                    boolean retainSelectionKeys ) {
         this.buffers = buffers;
         this.addToWriteSelector = addToWriteSelector;
+        this.writability = writability;
         this.failed = failed;
         this.closed = closed;
+        this.engine = engine;
+        this.timers = timers;
+        this.selectorCount = config.getSelectorCount();
+        this.selectorAssignment = config.getSelectorAssignment();
+        this.retainSelectionKeys = retainSelectionKeys;
+        this.config = config;
+        this.metrics = metrics;
+        this.accepted = metrics.counter( Metrics.ACCEPTED );
+        this.connected = metrics.counter( Metrics.CONNECTED );
+        this.open = metrics.counter( Metrics.OPEN );
+        this.timedOut = metrics.counter( Metrics.TIMED_OUT );
     }
 
-    Session create( SocketChannel channel ) {
-        return new Session( channel, addToWriteSelector, failed, closed, new SessionBufferSource( buffers ) );
+    /** Create a session for a connection made to us */
+    Session accepted( SocketChannel channel ) {
+        accepted.increment();
+
+        return create( channel );
+    }
+
+    /** Create a session for a connection we made out to another host */
+    Session connected( SocketChannel channel ) {
+        connected.increment();
+
+        Session session = create( channel );
+
+        session.setOutbound();
+
+        return session;
+    }
+
+    private Session create( SocketChannel channel ) {
+        open.increment();
+
+        Session session = new Session( channel,
+                                       addToWriteSelector,
+                                       writability,
+                                       failed,
+                                       closed,
+                                       new SessionBufferSource( buffers, config.getBufferSlizeSize() ),
+                                       selectorFor( channel ),
+                                       retainSelectionKeys,
+                                       config,
+                                       metrics );
+
+        if ( null != engine ) {
+            session.setDriver( new SessionDriver( session, engine ) );
+        }
+
+        if ( null != timers ) {
+            session.timeout().start( timers, timedOut );
+        }
+
+        return session;
+    }
+
+    private int selectorFor( SocketChannel channel ) {
+        if ( 1 == selectorCount ) {
+            return 0;
+        }
+
+        int hash;
+
+        if ( SelectorAssignment.Hash == selectorAssignment ) {
+            SocketAddress address = channel.socket().getRemoteSocketAddress();
+
+            hash = null == address ? 0 : address.hashCode();
+        } else {
+            hash = next.getAndIncrement();
+        }
+
+        return ( hash & Integer.MAX_VALUE ) % selectorCount;
     }
 }
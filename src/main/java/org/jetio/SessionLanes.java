@@ -0,0 +1,69 @@
+package org.jetio;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jetio.lifecycle.Lifecycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A fixed number of single-threaded lanes for the {@link ExecutionEngine#Lanes lanes} execution engine. Each session
+ * is bound to a lane by its hash, so everything read from it is handled by the same thread.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class SessionLanes implements Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger( SessionLanes.class );
+
+    private final ExecutorService[] lanes;
+    private final Configuration config;
+
+    SessionLanes( final Configuration config ) {
+        if ( config.getLaneCount() < 1 ) {
+            throw new IllegalArgumentException( "configuration must specify at least one lane" );
+        }
+
+        this.config = config;
+        this.lanes = new ExecutorService[config.getLaneCount()];
+
+        for ( int i = 0; i < lanes.length; i++ ) {
+            final String name = "lane-" + i + " " + config.getName() + "-" + config.getCounter();
+
+            lanes[i] = Executors.newSingleThreadExecutor( new ThreadFactory() {
+                @Override
+                public Thread newThread( Runnable r ) {
+                    return new Thread( r, name );
+                }
+            } );
+        }
+    }
+
+    Executor[] executors() {
+        return lanes;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void dispose() {
+        for ( ExecutorService lane : lanes ) {
+            lane.shutdownNow();
+        }
+
+        try {
+            for ( ExecutorService lane : lanes ) {
+                lane.awaitTermination( config.getDisposalWaitTime(), TimeUnit.MILLISECONDS );
+            }
+        } catch( InterruptedException e ) {
+            logger.error( "Interrupted while waiting for lanes to complete", e );
+
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.jetio;
+
+import org.jetio.metrics.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Enforces the {@link Configuration#getIdleTimeout() idle}, {@link Configuration#getReadTimeout() read} and
+ * {@link Configuration#getWriteTimeout() write} timeouts of a single session, closing it once one has passed. It is
+ * closed right from the wheel's thread, as the worker threads may well all be stuck waiting on sessions like it.
+ *
+ * The session stays scheduled on its {@link TimingWheel} for as long as it is open. Reads and writes only note the
+ * time on the wheel's clock, and when the timeout expires it works out whether a deadline has really passed, or when
+ * the next one falls, and schedules itself again for then. So each session costs the wheel one reschedule per timeout
+ * period, however busy it is.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class SessionTimeout extends Timeout {
+    private static final Logger logger = LoggerFactory.getLogger( SessionTimeout.class );
+
+    private final Session session;
+    private final long idleTimeout;
+    private final long readTimeout;
+    private final long writeTimeout;
+    /** Longest the session goes unchecked, when no deadline is pending sooner */
+    private final long period;
+    private TimingWheel wheel;
+    private Counter timedOut;
+    private volatile long lastActive;
+    /** When the message being read was started, or 0 if none is in progress */
+    private volatile long readStarted;
+    /** When queued data last made progress towards being written, or 0 if none is queued */
+    private volatile long writeWaiting;
+
+    SessionTimeout( Session session, Configuration config ) {
+        this.session = session;
+        this.idleTimeout = config.getIdleTimeout();
+        this.readTimeout = config.getReadTimeout();
+        this.writeTimeout = config.getWriteTimeout();
+
+        this.period = shortest( shortest( shortest( Long.MAX_VALUE, idleTimeout ), readTimeout ), writeTimeout );
+    }
+
+    private static long shortest( long period, long timeout ) {
+        return timeout > 0 ? Math.min( period, timeout ) : period;
+    }
+
+    /**
+     * Start enforcing the timeouts. Until then, noting activity does nothing.
+     *
+     * @param wheel    Wheel to schedule on
+     * @param timedOut Counter of sessions that have timed out
+     */
+    void start( TimingWheel wheel, Counter timedOut ) {
+        if ( Long.MAX_VALUE == period ) {
+            return;
+        }
+
+        this.wheel = wheel;
+        this.timedOut = timedOut;
+        this.lastActive = wheel.now();
+
+        wheel.schedule( this, period );
+    }
+
+    void cancel() {
+        if ( null != wheel ) {
+            wheel.cancel( this );
+        }
+    }
+
+    /** Data was read from, or written to, the session */
+    void active() {
+        if ( null != wheel ) {
+            lastActive = wheel.now();
+        }
+    }
+
+    /** A message has been started, and has {@link Configuration#getReadTimeout()} to be finished */
+    void readStarted() {
+        if ( null != wheel ) {
+            readStarted = wheel.now();
+        }
+    }
+
+    /** A message is in progress, which has {@link Configuration#getReadTimeout()} to be finished if it is new */
+    void readPending() {
+        if ( null != wheel && 0 == readStarted ) {
+            readStarted = wheel.now();
+        }
+    }
+
+    /** The message in progress has been finished */
+    void readFinished() {
+        if ( null != wheel ) {
+            readStarted = 0;
+            lastActive = wheel.now();
+        }
+    }
+
+    /**
+     * Data is still queued after writing what the socket would take
+     *
+     * @param progressed True if some of it was written
+     */
+    void writeWaiting( boolean progressed ) {
+        if ( null != wheel && ( progressed || 0 == writeWaiting ) ) {
+            writeWaiting = wheel.now();
+        }
+    }
+
+    /** Everything queued has been written */
+    void writeDrained() {
+        if ( 0 != writeWaiting ) {
+            writeWaiting = 0;
+        }
+    }
+
+    @Override
+    void expired() {
+        if ( session.isClosed() ) {
+            return;
+        }
+
+        long now = wheel.now();
+        long next = now + period;
+
+        long readStarted = this.readStarted;
+        long writeWaiting = this.writeWaiting;
+
+        if ( idleTimeout > 0 ) {
+            long deadline = lastActive + idleTimeout;
+
+            if ( deadline <= now ) {
+                close( "idle for more than {}ms", idleTimeout );
+                return;
+            }
+
+            next = Math.min( next, deadline );
+        }
+
+        if ( readTimeout > 0 && 0 != readStarted ) {
+            long deadline = readStarted + readTimeout;
+
+            if ( deadline <= now ) {
+                close( "message not read within {}ms", readTimeout );
+                return;
+            }
+
+            next = Math.min( next, deadline );
+        }
+
+        if ( writeTimeout > 0 && 0 != writeWaiting ) {
+            long deadline = writeWaiting + writeTimeout;
+
+            if ( deadline <= now ) {
+                close( "no data written for {}ms", writeTimeout );
+                return;
+            }
+
+            next = Math.min( next, deadline );
+        }
+
+        wheel.schedule( this, next - now );
+    }
+
+    private void close( String reason, long timeout ) {
+        timedOut.increment();
+
+        logger.info( "closing {}, " + reason, session, timeout );
+
+        session.close();
+    }
+
+    @Override
+    public String toString() {
+        return "timeout for " + session;
+    }
+}
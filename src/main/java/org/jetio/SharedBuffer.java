@@ -0,0 +1,97 @@
+package org.jetio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pooled buffer that can be written to many sessions at once, for sending the same message to each of them without
+ * encoding it again per session.
+ *
+ * Fill in the {@link #buffer() buffer} and flip it, then {@link Session#write(SharedBuffer) write} it to sessions,
+ * or {@link #writeTo(Iterable) write it to a group} of them. Each write queues its own view of the data, holding a
+ * reference to the buffer until the view has been written, or the session closes. The buffer must not be changed once
+ * writing has started.
+ *
+ * Whoever {@link JetIO#allocateShared(int) allocated} the buffer holds a reference too, to be {@link #release()
+ * released} once done writing it. The buffer goes back to the pool when the last reference is let go of.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public final class SharedBuffer {
+    private final SizedBufferSource source;
+    private final ByteBuffer buffer;
+    private final AtomicInteger references = new AtomicInteger( 1 );
+
+    SharedBuffer( SizedBufferSource source, ByteBuffer buffer ) {
+        this.source = source;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Get the buffer to fill in with the message
+     *
+     * @return Underlying buffer
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Write this buffer to each of a group of sessions. Sessions that are closed, or that refuse the write as they
+     * are over their high water mark, are skipped.
+     *
+     * @param sessions Sessions to write to
+     *
+     * @return Number of sessions the buffer was written to
+     */
+    public int writeTo( Iterable<Session> sessions ) {
+        int written = 0;
+
+        for ( Session session : sessions ) {
+            if ( session.isClosed() ) {
+                continue;
+            }
+
+            try {
+                session.write( this );
+                written++;
+            } catch( WriteRejectedException e ) {
+                // A slow reader shouldn't hold up everyone else
+            }
+        }
+
+        return written;
+    }
+
+    /** Let go of a reference, returning the buffer to the pool if it was the last one */
+    public void release() {
+        int remaining = references.decrementAndGet();
+
+        if ( 0 == remaining ) {
+            source.release( buffer );
+        } else if ( remaining < 0 ) {
+            throw new IllegalStateException( "shared buffer was already released" );
+        }
+    }
+
+    /**
+     * Take a reference for a write
+     *
+     * @return View of the buffer's data for the write, with its own position and limit
+     *
+     * @throws IllegalStateException if the buffer has already gone back to the pool
+     */
+    ByteBuffer retain() {
+        while ( true ) {
+            int current = references.get();
+
+            if ( current <= 0 ) {
+                throw new IllegalStateException( "shared buffer was already released" );
+            }
+
+            if ( references.compareAndSet( current, current + 1 ) ) {
+                return buffer.duplicate();
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.jetio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link BufferSource} that hands out buffers of more than one size, and takes them back one at a time, such as a
+ * {@link Session#buffers() session's}. Kept apart from {@link BufferSource} so that existing implementations of it
+ * still compile.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public interface SizedBufferSource extends BufferSource {
+    /**
+     * Acquire a buffer that can hold at least the given number of bytes
+     *
+     * @param minCapacity Minimum capacity of the buffer, in bytes
+     *
+     * @return Buffer with at least the requested capacity, which may be larger
+     *
+     * @throws IllegalArgumentException if larger than the {@link Configuration#getBufferMaximumSize() largest buffer}
+     */
+    ByteBuffer acquire( int minCapacity );
+
+    void release( ByteBuffer buffer );
+}
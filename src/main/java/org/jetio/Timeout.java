@@ -0,0 +1,24 @@
+package org.jetio;
+
+/**
+ * Something to be done once a delay has passed, scheduled on a {@link TimingWheel}.
+ *
+ * The links that place it in the wheel are kept here rather than in an entry allocated by the wheel, so scheduling and
+ * cancelling never allocate. A timeout is in the wheel at most once, rescheduling it moves it.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+abstract class Timeout {
+    // All guarded by the wheel
+    Timeout previous;
+    Timeout next;
+    /** Bucket of the wheel this is in, or -1 if not scheduled */
+    int bucket = -1;
+    /** Full turns of the wheel left before this expires, once its bucket comes around */
+    long rounds;
+    /** Chains expired timeouts together, apart from {@link #next} in case they are rescheduled while being expired */
+    Timeout nextExpired;
+
+    /** Called on the wheel's thread once the delay has passed, so should be quick */
+    abstract void expired();
+}
@@ -0,0 +1,189 @@
+package org.jetio;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jetio.lifecycle.Lifecycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timing wheel, expiring {@link Timeout}s to within one {@link Configuration#getTimerTick() tick}.
+ *
+ * Timeouts hang off a ring of buckets, each a doubly-linked list, and a single thread moves on a bucket every tick,
+ * expiring what is due in that bucket. Anything further out than one turn of the wheel waits for as many more turns.
+ * Scheduling and cancelling take constant time, under a lock that is only held to link and unlink.
+ *
+ * The wheel also keeps a clock that moves a tick at a time, which is cheaper to read than the system's. It starts a
+ * tick in, so never reads 0, leaving that free to mean a time that isn't set.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+class TimingWheel implements Runnable, Lifecycle {
+    private static final Logger logger = LoggerFactory.getLogger( TimingWheel.class );
+
+    private static final int BUCKETS = 512;
+    private static final int MASK = BUCKETS - 1;
+
+    private final Configuration config;
+    private final Timeout[] buckets = new Timeout[BUCKETS];
+    private final long tick;
+    private final long origin = System.nanoTime();
+    private final Thread thread;
+    /** Ticks completed, guarded by this */
+    private long ticks;
+    /** Milliseconds on the wheel's clock, as of the last tick */
+    private volatile long now;
+
+    TimingWheel( Configuration config ) {
+        if ( config.getTimerTick() < 1 ) {
+            throw new IllegalArgumentException( "configuration must specify a timerTick of at least 1ms" );
+        }
+
+        this.config = config;
+        this.tick = config.getTimerTick();
+        this.now = tick;
+        this.thread = new Thread( this, "timer " + config.getName() + "-" + config.getCounter() );
+    }
+
+    /**
+     * Get the wheel's clock
+     *
+     * @return Milliseconds since a tick before the wheel was created, as of the last tick
+     */
+    long now() {
+        return now;
+    }
+
+    /**
+     * Schedule a timeout, moving it if it is already scheduled
+     *
+     * @param timeout Timeout to schedule
+     * @param delay   Milliseconds until it expires, rounded up to a whole number of ticks
+     */
+    synchronized void schedule( Timeout timeout, long delay ) {
+        unlink( timeout );
+
+        long due = Math.max( 1, ( delay + tick - 1 ) / tick );
+        int bucket = (int) ( ticks + due ) & MASK;
+
+        timeout.rounds = ( due - 1 ) / BUCKETS;
+        timeout.bucket = bucket;
+        timeout.previous = null;
+        timeout.next = buckets[bucket];
+
+        if ( null != timeout.next ) {
+            timeout.next.previous = timeout;
+        }
+
+        buckets[bucket] = timeout;
+    }
+
+    /**
+     * Cancel a timeout, if it is scheduled
+     *
+     * @param timeout Timeout to cancel
+     */
+    synchronized void cancel( Timeout timeout ) {
+        unlink( timeout );
+    }
+
+    private void unlink( Timeout timeout ) {
+        if ( -1 == timeout.bucket ) {
+            return;
+        }
+
+        if ( null == timeout.previous ) {
+            buckets[timeout.bucket] = timeout.next;
+        } else {
+            timeout.previous.next = timeout.next;
+        }
+
+        if ( null != timeout.next ) {
+            timeout.next.previous = timeout.previous;
+        }
+
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+
+    /** Move on a tick, unlinking whatever is due */
+    private synchronized Timeout advance() {
+        Timeout expired = null;
+        Timeout timeout = buckets[(int) ++ticks & MASK];
+
+        while ( null != timeout ) {
+            Timeout next = timeout.next;
+
+            if ( timeout.rounds > 0 ) {
+                timeout.rounds--;
+            } else {
+                unlink( timeout );
+
+                timeout.nextExpired = expired;
+                expired = timeout;
+            }
+
+            timeout = next;
+        }
+
+        now = ( ticks + 1 ) * tick;
+
+        return expired;
+    }
+
+    @Override
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void dispose() {
+        thread.interrupt();
+
+        try {
+            thread.join( config.getDisposalWaitTime() );
+        } catch( InterruptedException e ) {
+            logger.error( "Interrupted while waiting for timer thread to complete", e );
+
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos( tick );
+        long completed = 0;
+
+        try {
+            while ( !Thread.interrupted() ) {
+                long wait = origin + ( completed + 1 ) * tickNanos - System.nanoTime();
+
+                if ( wait > 0 ) {
+                    TimeUnit.NANOSECONDS.sleep( wait );
+                }
+
+                // Outside of the lock, as expiring may schedule again
+                Timeout expired = advance();
+
+                completed++;
+
+                while ( null != expired ) {
+                    Timeout next = expired.nextExpired;
+
+                    expired.nextExpired = null;
+
+                    try {
+                        expired.expired();
+                    } catch( RuntimeException e ) {
+                        logger.error( "Exception expiring " + expired, e );
+                    }
+
+                    expired = next;
+                }
+            }
+        } catch( InterruptedException e ) {
+            logger.debug( "Thread interrupted, exiting", e );
+        }
+    }
+}
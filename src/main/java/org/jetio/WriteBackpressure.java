@@ -0,0 +1,16 @@
+package org.jetio;
+
+/**
+ * What happens when a session has more data waiting to be written than its high water mark
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public enum WriteBackpressure {
+    /**
+     * Keep accepting writes, but mark the session as not writable and publish on {@link JetIO#writability()}, so
+     * producers can hold off until it drains below the low water mark
+     */
+    Signal,
+    /** Refuse writes with a {@link WriteRejectedException} until the session drains below the low water mark */
+    Reject
+}
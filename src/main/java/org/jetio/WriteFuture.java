@@ -0,0 +1,134 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handle on the completion of a write, which is done once all of its bytes have been written to the socket.
+ *
+ * Handles are pooled per session. Once done with a handle, {@link #release()} it so it can be reused; it must not be
+ * touched afterwards. A handle that is never released is simply garbage collected.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ * @see Session#writeWithFuture(java.nio.ByteBuffer...)
+ */
+public final class WriteFuture {
+    private static final int PENDING = 0;
+    private static final int SUCCEEDED = 1;
+    private static final int FAILED = 2;
+
+    private final WriteQueue queue;
+    /** One reference is held by the write queue until completion, and one by the caller until released */
+    private final AtomicInteger references = new AtomicInteger();
+    private volatile int state;
+    private volatile IOException cause;
+
+    WriteFuture( WriteQueue queue ) {
+        this.queue = queue;
+    }
+
+    WriteFuture reset() {
+        state = PENDING;
+        cause = null;
+        references.set( 2 );
+
+        return this;
+    }
+
+    /**
+     * Check to see if the write has completed, successfully or not
+     *
+     * @return True if the write is done
+     */
+    public boolean isDone() {
+        return PENDING != state;
+    }
+
+    /**
+     * Check to see if all of the write's bytes were written to the socket
+     *
+     * @return True if the write completed successfully
+     */
+    public boolean isSuccess() {
+        return SUCCEEDED == state;
+    }
+
+    /**
+     * Get the reason a write failed
+     *
+     * @return Exception the write failed with, or null if it has not failed
+     */
+    public IOException cause() {
+        return cause;
+    }
+
+    /**
+     * Wait for the write to complete
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        synchronized( this ) {
+            while ( !isDone() ) {
+                wait();
+            }
+        }
+    }
+
+    /**
+     * Wait for the write to complete, up to the specified amount of time
+     *
+     * @return True if the write completed
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean await( long timeout, TimeUnit unit ) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos( timeout );
+
+        synchronized( this ) {
+            while ( !isDone() ) {
+                long remaining = deadline - System.nanoTime();
+
+                if ( remaining <= 0 ) {
+                    return false;
+                }
+
+                TimeUnit.NANOSECONDS.timedWait( this, remaining );
+            }
+        }
+
+        return true;
+    }
+
+    /** Return this handle to the session's pool. It must not be used afterwards. */
+    public void release() {
+        dereference();
+    }
+
+    void succeed() {
+        complete( SUCCEEDED, null );
+    }
+
+    void fail( IOException cause ) {
+        complete( FAILED, cause );
+    }
+
+    private void complete( int state, IOException cause ) {
+        this.cause = cause;
+
+        synchronized( this ) {
+            this.state = state;
+
+            notifyAll();
+        }
+
+        dereference();
+    }
+
+    private void dereference() {
+        if ( references.decrementAndGet() == 0 ) {
+            queue.recycle( this );
+        }
+    }
+}
@@ -2,12 +2,17 @@ package org.jetio;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import org.jetio.metrics.Counter;
+import org.jetio.metrics.Metrics;
 import org.jetlang.channels.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,129 +20,575 @@ import org.slf4j.LoggerFactory;
 /**
  * Manages the {@link ByteBuffer}s to write for a {@link Session}
  *
+ * Any number of threads may add to the queue, but only one at a time flushes it. Producers claim a contiguous run of
+ * slots in a fixed size ring, so the buffers of a single write are never interleaved with those of another. Whoever
+ * wins the right to flush gathers as many queued buffers as possible into a single write.
+ *
+ * A write that doesn't fit in the ring spills into an unbounded overflow, and so does every write after it until the
+ * overflow has been written, so that a thread's writes stay in order. The ring's capacity never holds up or turns away
+ * a writer, only the byte {@link Configuration#getWriteHighWaterMark() high water mark} does.
+ *
+ * A {@link WriteFuture} is kept alongside the last buffer of its write, and completed when that buffer is written.
+ * Likewise, a view of a {@link SharedBuffer} is kept alongside the shared buffer, so that once written, the reference
+ * is let go of rather than the view being released to the session's buffers.
+ *
  * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
  */
 class WriteQueue {
     private static final Logger logger = LoggerFactory.getLogger( WriteQueue.class );
 
-    private final List<ByteBuffer> queue = Collections.synchronizedList( new ArrayList<ByteBuffer>() );
+    /** Most buffers that will be passed to a single gathering write, the common limit on iovec's per writev */
+    static final int IOV_MAX = 1024;
+
+    private static final int FUTURE_POOL_SIZE = 8;
+
+    /** Only the flushing thread uses this, and a thread flushes one queue at a time */
+    private static final ThreadLocal<ByteBuffer[]> gather = new ThreadLocal<ByteBuffer[]>() {
+        @Override
+        protected ByteBuffer[] initialValue() {
+            return new ByteBuffer[IOV_MAX];
+        }
+    };
+
+    private final AtomicReferenceArray<ByteBuffer> ring;
+    /** Futures for writes that end at the corresponding slot of the ring, published along with the slot's buffer */
+    private final WriteFuture[] futures;
+    /** Shared buffers that the corresponding slot of the ring is a view of, published along with the slot's buffer */
+    private final SharedBuffer[] shared;
+    private final WriteFuture[] futurePool = new WriteFuture[FUTURE_POOL_SIZE];
+    private int pooledFutures;
+    private volatile FlushListener flushListener;
+    private final int mask;
+    /** Next slot to be claimed by a producer */
+    private final AtomicLong tail = new AtomicLong();
+    /** Next slot to be written, only advanced by the thread that holds {@link #flushing} */
+    private volatile long head;
+    private final AtomicBoolean flushing = new AtomicBoolean( false );
+    /** Buffers that didn't fit in the ring, written once the ring is empty. Guarded by itself. */
+    private final ArrayDeque<Spilled> overflow = new ArrayDeque<Spilled>();
+    /** True while the overflow has anything in it, only changed while holding its lock */
+    private volatile boolean spilled;
+
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final long highWaterMark;
+    private final long lowWaterMark;
+    private final boolean reject;
+    private volatile boolean writable = true;
+
     private final Publisher<Event> addToWriteSelector;
+    private final Publisher<Event> writability;
     private final Publisher<DataEvent<IOException>> failed;
-    private final BufferSource buffers;
+    private final SizedBufferSource buffers;
     private final Session session;
+    private final Counter bytesWritten;
+    private final Counter bytesQueued;
 
     WriteQueue( Session session,
                 Publisher<Event> addToWriteSelector,
+                Publisher<Event> writability,
                 Publisher<DataEvent<IOException>> failed,
-                BufferSource buffers )
+                SizedBufferSource buffers,
+                Configuration config,
+                Metrics metrics )
     {
         this.session = session;
         this.addToWriteSelector = addToWriteSelector;
+        this.writability = writability;
         this.failed = failed;
         this.buffers = buffers;
+        this.bytesWritten = metrics.counter( Metrics.BYTES_WRITTEN );
+        this.bytesQueued = metrics.counter( Metrics.WRITE_QUEUED );
+
+        int capacity = Integer.highestOneBit( Math.max( 1, config.getWriteQueueCapacity() - 1 ) ) << 1;
+
+        this.ring = new AtomicReferenceArray<ByteBuffer>( capacity );
+        this.futures = new WriteFuture[capacity];
+        this.shared = new SharedBuffer[capacity];
+        this.mask = capacity - 1;
+
+        this.highWaterMark = config.getWriteHighWaterMark() > 0 ? config.getWriteHighWaterMark() : Long.MAX_VALUE;
+        this.lowWaterMark = Math.min( config.getWriteLowWaterMark(), highWaterMark );
+        this.reject = WriteBackpressure.Reject == config.getWriteBackpressure();
+    }
+
+    /**
+     * Add buffers to the queue, and attempt to write them right away
+     *
+     * @param buffers Buffers to write
+     * @param future  Future to complete once the buffers are written, or null
+     */
+    void add( ByteBuffer[] buffers, WriteFuture future ) {
+        add( buffers, future, null );
     }
 
-    // TODO return a WriteFuture-like thing
-    void add( ByteBuffer[] buffers ) {
+    /**
+     * Add a view of a shared buffer to the queue, and attempt to write it right away. The reference the view holds is
+     * let go of once it is written, or fails to be.
+     *
+     * @param view   View of the shared buffer, from {@link SharedBuffer#retain()}
+     * @param buffer Shared buffer the view is of
+     */
+    void add( ByteBuffer view, SharedBuffer buffer ) {
         try {
-            if ( session.isBlocking() ) {
-                if ( !queue.isEmpty() ) {
-                    process();
+            add( new ByteBuffer[]{ view }, null, buffer );
+        } catch( RuntimeException e ) {
+            // Rejected before it was queued
+            buffer.release();
+
+            throw e;
+        }
+    }
+
+    private void add( ByteBuffer[] buffers, WriteFuture future, SharedBuffer owner ) {
+        if ( reject && !writable ) {
+            throw new WriteRejectedException( session + " has " + queuedBytes.get() + " bytes waiting to be written" );
+        }
+
+        if ( 0 == buffers.length ) {
+            if ( null != future ) {
+                future.succeed();
+            }
+
+            return;
+        }
+
+        enqueue( buffers, future, owner );
+
+        try {
+            // Try to flush right away. If we can't fully flush now, schedule for later writing.
+            if ( !process() ) {
+                addToWriteSelector.publish( session.event() );
+            }
+        } catch( IOException e ) {
+            // The future is failed when the queue is discarded, as the session is closed
+            failed.publish( new DataEvent<IOException>( session, e ) );
+        }
+    }
+
+    private void enqueue( ByteBuffer[] buffers, WriteFuture future, SharedBuffer owner ) {
+        long bytes = 0;
+
+        for ( ByteBuffer buffer : buffers ) {
+            bytes += buffer.remaining();
+        }
+
+        long start = spilled ? -1 : claim( buffers.length );
+
+        if ( start < 0 ) {
+            spill( buffers, future, owner );
+        } else {
+            futures[index( start + buffers.length - 1 )] = future;
+
+            if ( null != owner ) {
+                shared[index( start )] = owner;
+            }
+
+            for ( int i = 0; i < buffers.length; i++ ) {
+                ring.lazySet( index( start + i ), buffers[i] );
+            }
+        }
+
+        bytesQueued.add( bytes );
+
+        if ( queuedBytes.addAndGet( bytes ) > highWaterMark && writable ) {
+            changeWritability( false );
+        }
+    }
+
+    /**
+     * Claim a contiguous run of slots
+     *
+     * @return Index of the first claimed slot, or -1 if there isn't room in the ring
+     */
+    private long claim( int count ) {
+        while ( true ) {
+            long current = tail.get();
+
+            if ( current + count - head > ring.length() ) {
+                return -1;
+            } else if ( tail.compareAndSet( current, current + count ) ) {
+                return current;
+            }
+        }
+    }
+
+    /** Add a write to the overflow, where every write goes until it has been flushed */
+    private void spill( ByteBuffer[] buffers, WriteFuture future, SharedBuffer owner ) {
+        synchronized( overflow ) {
+            spilled = true;
+
+            for ( int i = 0; i < buffers.length; i++ ) {
+                overflow.add( new Spilled( buffers[i],
+                                           i == buffers.length - 1 ? future : null,
+                                           0 == i ? owner : null ) );
+            }
+        }
+    }
+
+    /**
+     * Write as much of the queue as possible
+     *
+     * @return False if data remains that must wait for the channel to become writable. True if the queue was drained,
+     *         or another thread is in the midst of flushing and has taken responsibility for it.
+     */
+    boolean process() throws IOException {
+        do {
+            if ( !flushing.compareAndSet( false, true ) ) {
+                return true;
+            }
+
+            try {
+                if ( !flush() ) {
+                    return false;
+                }
+            } finally {
+                flushing.set( false );
+
+                if ( session.isClosed() ) {
+                    discard();
                 }
+            }
+
+            // Re-check once we've let go, in case a producer showed up while we held the flag.
+        } while ( !isEmpty() );
 
-                write( buffers );
+        return true;
+    }
+
+    boolean isEmpty() {
+        return head == tail.get() && !spilled;
+    }
+
+    /** @return True if everything that had been published was written */
+    private boolean flush() throws IOException {
+        ByteBuffer[] batch = gather.get();
 
-                this.buffers.release( Arrays.asList( buffers ) );
-            } else {
-                boolean empty;
+        while ( true ) {
+            long first = head;
+            long last = tail.get();
+            int count = 0;
 
-                synchronized( queue ) {
-                    empty = queue.isEmpty();
-                    queue.addAll( Arrays.asList( buffers ) );
+            while ( first + count < last && count < batch.length ) {
+                ByteBuffer buffer = ring.get( index( first + count ) );
+
+                if ( null == buffer ) {
+                    // claimed, but not yet filled in by its producer, who will attempt to flush afterwards
+                    break;
                 }
 
-                // If it was empty when we showed up, we're responsible for attempting to flush
-                // and scheduling for later writing if we can't fully flush now
-                if ( empty && !process() ) {
-                    addToWriteSelector.publish( new Event( session ) );
+                batch[count++] = buffer;
+            }
+
+            if ( 0 == count ) {
+                if ( first == last && spilled ) {
+                    // Only once the ring is empty, anything in it was queued before the overflow
+                    if ( !flushOverflow( batch ) ) {
+                        return false;
+                    }
+
+                    continue;
                 }
+
+                session.timeout().writeDrained();
+
+                return true;
             }
+
+            long written;
+
+            try {
+                written = write( batch, count );
+            } catch( IOException e ) {
+                Arrays.fill( batch, 0, count, null );
+
+                throw e;
+            }
+
+            int cleared = release( batch, count, first );
+
+            head = first + cleared;
+
+            written( written );
+
+            if ( cleared < count ) {
+                session.timeout().writeWaiting( written > 0 );
+
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Write as much of the overflow as possible, noting once it is empty
+     *
+     * @return True if everything in the overflow was written
+     */
+    private boolean flushOverflow( ByteBuffer[] batch ) throws IOException {
+        int count = 0;
+
+        synchronized( overflow ) {
+            if ( overflow.isEmpty() ) {
+                spilled = false;
+
+                return true;
+            }
+
+            // Only the flushing thread takes from the overflow, so these stay at its front
+            for ( Iterator<Spilled> i = overflow.iterator(); i.hasNext() && count < batch.length; ) {
+                batch[count++] = i.next().buffer;
+            }
+        }
+
+        long written;
+
+        try {
+            written = write( batch, count );
         } catch( IOException e ) {
-            failed.publish( new DataEvent<IOException>( session, e ) );
-            // TODO return FAIL on the future, when that occurs
+            Arrays.fill( batch, 0, count, null );
+
+            throw e;
+        }
+
+        int cleared = 0;
+
+        while ( cleared < count && !batch[cleared].hasRemaining() ) {
+            Spilled done;
+
+            synchronized( overflow ) {
+                done = overflow.poll();
+            }
+
+            release( done.buffer, done.owner );
+
+            if ( null != done.future ) {
+                done.future.succeed();
+            }
+
+            cleared++;
         }
+
+        Arrays.fill( batch, 0, count, null );
+
+        if ( cleared == count ) {
+            // Let writers back into the ring as soon as possible, and the flush listener see that we're drained
+            synchronized( overflow ) {
+                if ( overflow.isEmpty() ) {
+                    spilled = false;
+                }
+            }
+        }
+
+        written( written );
+
+        if ( cleared < count ) {
+            session.timeout().writeWaiting( written > 0 );
+
+            return false;
+        }
+
+        return true;
     }
 
-    synchronized boolean process() throws IOException {
-        ByteBuffer[] buffers = writeQueue();
+    /** Account for bytes written from either the ring or the overflow */
+    private void written( long written ) {
+        bytesWritten.add( written );
+        bytesQueued.add( -written );
+
+        if ( written > 0 ) {
+            session.timeout().active();
+        }
 
-        if ( buffers.length == 0 ) {
-            return true;
+        if ( queuedBytes.addAndGet( -written ) <= lowWaterMark && !writable ) {
+            changeWritability( true );
         }
 
-        write( buffers );
+        FlushListener listener = flushListener;
 
-        return releaseBuffers( countClearedBuffers( buffers ) );
+        if ( null != listener && written > 0 ) {
+            listener.flushed( session, written, isEmpty() );
+        }
     }
 
-    private long write( ByteBuffer[] buffers ) throws IOException {
+    private long write( ByteBuffer[] buffers, int count ) throws IOException {
         SocketChannel channel = session.channel();
         long written;
 
         synchronized( channel.blockingLock() ) {
             // Do not change blocking mode while writing!
-            written = channel.write( buffers );
+            written = channel.write( buffers, 0, count );
         }
 
-        logger.debug( "wrote {} bytes to {}", written, this );
+        if ( logger.isDebugEnabled() ) {
+            logger.debug( "wrote {} bytes to {}", written, this );
+        }
 
         return written;
     }
 
-    private int countClearedBuffers( ByteBuffer[] buffers ) {
+    /**
+     * Release written buffers from the front of the batch, and clear their slots
+     *
+     * @return Number of buffers that were completely written
+     */
+    private int release( ByteBuffer[] batch, int count, long first ) {
         int cleared = 0;
 
-        for ( ByteBuffer buffer : buffers ) {
-            if ( buffer.remaining() == 0 ) {
-                cleared++;
-            } else {
-                break;
+        while ( cleared < count && !batch[cleared].hasRemaining() ) {
+            int index = index( first + cleared );
+            WriteFuture future = futures[index];
+
+            ring.lazySet( index, null );
+
+            release( index, batch[cleared] );
+
+            if ( null != future ) {
+                futures[index] = null;
+                future.succeed();
             }
+
+            cleared++;
         }
 
+        Arrays.fill( batch, 0, count, null );
+
         return cleared;
     }
 
-    private ByteBuffer[] writeQueue() {
-        synchronized( queue ) {
-            return queue.toArray( new ByteBuffer[queue.size()] );
-        }
+    /** Release anything left in the queue once the session has been closed, failing any futures */
+    void discard() {
+        IOException closed = null;
+
+        do {
+            if ( !flushing.compareAndSet( false, true ) ) {
+                return;
+            }
+
+            try {
+                long last = tail.get();
+
+                for ( long i = head; i < last; i++ ) {
+                    int index = index( i );
+                    ByteBuffer buffer;
+
+                    // A producer that has claimed the slot is about to fill it, and nobody else would release it
+                    while ( null == ( buffer = ring.getAndSet( index, null ) ) ) {
+                        Thread.yield();
+                    }
+
+                    bytesQueued.add( -buffer.remaining() );
+
+                    release( index, buffer );
+
+                    WriteFuture future = futures[index];
+
+                    if ( null != future ) {
+                        futures[index] = null;
+                        future.fail( null == closed ? closed = new ClosedChannelException() : closed );
+                    }
+                }
+
+                head = last;
+
+                synchronized( overflow ) {
+                    Spilled left;
+
+                    while ( null != ( left = overflow.poll() ) ) {
+                        bytesQueued.add( -left.buffer.remaining() );
+
+                        release( left.buffer, left.owner );
+
+                        if ( null != left.future ) {
+                            left.future.fail( null == closed ? closed = new ClosedChannelException() : closed );
+                        }
+                    }
+
+                    spilled = false;
+                }
+            } finally {
+                flushing.set( false );
+            }
+
+            // A producer that claimed slots while we held the flag will have found it taken, and left them to us
+        } while ( !isEmpty() );
     }
 
-    /**
-     * Remove written buffers from the queue
-     *
-     * @param count Number of buffers that were consumed
-     *
-     * @return True if the queue is now empty
-     */
-    private boolean releaseBuffers( int count ) {
-        synchronized( queue ) {
-            List<ByteBuffer> written = queue.subList( 0, count );
+    /** Release a buffer taken out of a slot, to the session's buffers or the shared buffer it is a view of */
+    private void release( int index, ByteBuffer buffer ) {
+        SharedBuffer owner = shared[index];
+
+        if ( null != owner ) {
+            shared[index] = null;
+        }
 
-            this.buffers.release( written );
+        release( buffer, owner );
+    }
 
-            written.clear();
+    private void release( ByteBuffer buffer, SharedBuffer owner ) {
+        if ( null == owner ) {
+            this.buffers.release( buffer );
+        } else {
+            owner.release();
+        }
+    }
 
-            // TODO thinking about ensuring that the queue's underlying list doesn't get too big. ArrayList.trimToSize
+    WriteFuture newFuture() {
+        WriteFuture future = null;
 
-            if ( queue.isEmpty() ) {
-                session.selectionKeys().cancel( SelectionOp.Write );
+        synchronized( futurePool ) {
+            if ( pooledFutures > 0 ) {
+                future = futurePool[--pooledFutures];
+                futurePool[pooledFutures] = null;
+            }
+        }
 
-                return true;
+        return ( null == future ? new WriteFuture( this ) : future ).reset();
+    }
+
+    void recycle( WriteFuture future ) {
+        synchronized( futurePool ) {
+            if ( pooledFutures < futurePool.length ) {
+                futurePool[pooledFutures++] = future;
             }
+        }
+    }
 
-            return false;
+    void setFlushListener( FlushListener flushListener ) {
+        this.flushListener = flushListener;
+    }
+
+    boolean isWritable() {
+        return writable;
+    }
+
+    private synchronized void changeWritability( boolean writable ) {
+        // Re-check under the lock, the other side may have already flipped it back
+        long queued = queuedBytes.get();
+
+        if ( writable == this.writable || ( writable ? queued > lowWaterMark : queued <= highWaterMark ) ) {
+            return;
+        }
+
+        this.writable = writable;
+
+        logger.debug( "{} is {} writable", session, writable ? "now" : "no longer" );
+
+        writability.publish( session.event() );
+    }
+
+    private int index( long sequence ) {
+        return (int) sequence & mask;
+    }
+
+    /** A buffer waiting in the overflow, with what would otherwise be kept alongside its slot in the ring */
+    private static class Spilled {
+        private final ByteBuffer buffer;
+        private final WriteFuture future;
+        private final SharedBuffer owner;
+
+        Spilled( ByteBuffer buffer, WriteFuture future, SharedBuffer owner ) {
+            this.buffer = buffer;
+            this.future = future;
+            this.owner = owner;
         }
     }
 }
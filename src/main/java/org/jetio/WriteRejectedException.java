@@ -0,0 +1,15 @@
+package org.jetio;
+
+/**
+ * Thrown when writing to a session that has too much data waiting to be written, and is configured to
+ * {@link WriteBackpressure#Reject} writes. The buffers that were being written remain the property of the caller.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class WriteRejectedException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public WriteRejectedException( String message ) {
+        super( message );
+    }
+}
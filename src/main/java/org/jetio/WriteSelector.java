@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 
+import org.jetio.metrics.Metrics;
 import org.jetlang.channels.Channel;
 
 /**
@@ -13,21 +14,57 @@ import org.jetlang.channels.Channel;
  */
 class WriteSelector extends AbstractSelector {
 
-    WriteSelector( Channel<DataEvent<IOException>> failed, Configuration config ) throws IOException {
-        super( SelectionOp.Write, config, failed );
+    WriteSelector( int index, Channel<DataEvent<IOException>> failed, Configuration config, Metrics metrics )
+        throws IOException
+    {
+        super( SelectionOp.Write, index, config, failed, metrics );
     }
 
     @Override
     protected void selected( SelectionKey key, Session session ) throws IOException {
-        session.processWriteQueue();
+        SelectionKeys keys = session.selectionKeys();
+
+        if ( !session.processWriteQueue() ) {
+            return;
+        }
+
+        if ( keys.isRetained() ) {
+            // Nothing more to write, stop selecting until something is queued again
+            keys.interested( op, false );
+
+            // Another thread may have been in the midst of flushing, and will have asked to be re-enabled
+            // before we switched it off.
+            if ( !session.isWriteQueueEmpty() ) {
+                keys.interested( op, true );
+            }
+        } else {
+            // Take the key out of the selector, or it would be selected on every pass while the queue stays empty
+            keys.cancel( op );
+
+            // A producer may have asked for the key while we still held it. Register again once the cancelled key
+            // has left the selector, which happens on the next select.
+            if ( !session.isWriteQueueEmpty() ) {
+                onMessage( session.event() );
+            }
+        }
     }
 
     @Override
     protected void addToSelector( Session session ) throws IOException {
         SelectionKeys keys = session.selectionKeys();
 
-        if ( !session.isBlocking() && !keys.hasKey( SelectionOp.Write ) ) {
-            logger.debug( "adding {} to selector", session, op );
+        if ( session.isBlocking() ) {
+            return;
+        }
+
+        if ( keys.isRetained() && keys.interested( op, true ) ) {
+            if ( logger.isDebugEnabled() ) {
+                logger.debug( "re-enabled {} on {} selector", session, op );
+            }
+        } else if ( !keys.hasKey( SelectionOp.Write ) ) {
+            if ( logger.isDebugEnabled() ) {
+                logger.debug( "adding {} to {} selector", session, op );
+            }
 
             // We don't want this to collide with a call to change the blocking mode
             // Acquire the lock, and if we are still non-blocking, then go ahead and schedule ourselves.
@@ -38,4 +75,4 @@ class WriteSelector extends AbstractSelector {
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package org.jetio.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Split data into frames that are terminated by a delimiter, such as a line ending
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class DelimiterFrameDecoder extends FrameDecoder {
+    private final byte[] delimiter;
+
+    /**
+     * @param handler      Handler for decoded frames
+     * @param delimiter    Bytes that terminate each frame, not included in the frame contents
+     * @param maxFrameSize Maximum size of a frame's contents, larger frames cause the session to be closed
+     */
+    public DelimiterFrameDecoder( FrameHandler handler, byte[] delimiter, int maxFrameSize ) {
+        super( handler, maxFrameSize );
+
+        if ( null == delimiter || delimiter.length == 0 ) {
+            throw new IllegalArgumentException( "delimiter is required" );
+        }
+
+        this.delimiter = delimiter.clone();
+    }
+
+    @Override
+    protected int frameLength( ByteBuffer data, int start, int limit ) throws IOException {
+        int last = limit - delimiter.length;
+        byte first = delimiter[0];
+
+        for ( int i = start; i <= last; i++ ) {
+            if ( data.get( i ) == first && matches( data, i ) ) {
+                return i - start;
+            }
+        }
+
+        // No delimiter yet, but we can still tell if the frame is already too big
+        if ( limit - start > maxFrameSize() + delimiter.length - 1 ) {
+            throw new IOException( "no delimiter found within " + maxFrameSize() + " bytes" );
+        }
+
+        return -1;
+    }
+
+    private boolean matches( ByteBuffer data, int index ) {
+        for ( int i = 1; i < delimiter.length; i++ ) {
+            if ( data.get( index + i ) != delimiter[i] ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    protected int trailerLength() {
+        return delimiter.length;
+    }
+}
@@ -0,0 +1,23 @@
+package org.jetio.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Split data into frames that all have the same length
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class FixedLengthFrameDecoder extends FrameDecoder {
+    private final int length;
+
+    public FixedLengthFrameDecoder( FrameHandler handler, int length ) {
+        super( handler, length );
+
+        this.length = length;
+    }
+
+    @Override
+    protected int frameLength( ByteBuffer data, int start, int limit ) {
+        return length;
+    }
+}
@@ -0,0 +1,106 @@
+package org.jetio.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jetio.MessageDecoder;
+import org.jetio.Session;
+
+/**
+ * Base for {@link MessageDecoder}s that split data into frames, handing each complete frame to a {@link FrameHandler}.
+ *
+ * Frames are handed over as a window onto the session's read buffer, so no data is copied and nothing is allocated
+ * while decoding. As a consequence, a complete frame must fit in the
+ * {@link org.jetio.Configuration#getBufferMaximumSize() largest} read buffer.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public abstract class FrameDecoder implements MessageDecoder {
+    private final FrameHandler handler;
+    private final int maxFrameSize;
+
+    /**
+     * @param handler      Handler for decoded frames
+     * @param maxFrameSize Maximum size of a frame's contents, larger frames cause the session to be closed
+     */
+    protected FrameDecoder( FrameHandler handler, int maxFrameSize ) {
+        if ( null == handler ) {
+            throw new IllegalArgumentException( "handler is required" );
+        } else if ( maxFrameSize <= 0 ) {
+            throw new IllegalArgumentException( "maxFrameSize must be positive" );
+        }
+
+        this.handler = handler;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    @Override
+    public final void decode( Session session, ByteBuffer data ) throws IOException {
+        int limit = data.limit();
+
+        while ( data.hasRemaining() ) {
+            int start = data.position();
+            int length = frameLength( data, start, limit );
+
+            if ( length < 0 ) {
+                return;
+            } else if ( length > maxFrameSize ) {
+                throw new IOException( "frame of " + length + " bytes exceeds maximum of " + maxFrameSize );
+            }
+
+            int frameStart = start + headerLength();
+            int frameEnd = frameStart + length;
+            int next = frameEnd + trailerLength();
+
+            if ( next > limit ) {
+                // Incomplete, the session's read buffer is enlarged if need be
+                return;
+            }
+
+            data.position( frameStart );
+            data.limit( frameEnd );
+
+            try {
+                handler.frame( session, data );
+            } finally {
+                data.limit( limit );
+                data.position( next );
+            }
+        }
+    }
+
+    /**
+     * Determine the length of the contents of the frame that starts at {@code start}
+     *
+     * @param data  Data to examine. Implementations must use absolute gets, and leave position and limit untouched.
+     * @param start Index of the first byte of the frame
+     * @param limit Index after the last byte of available data
+     *
+     * @return Length of the frame contents, or -1 if there isn't enough data available to tell yet
+     *
+     * @throws IOException if the data is not validly framed
+     */
+    protected abstract int frameLength( ByteBuffer data, int start, int limit ) throws IOException;
+
+    /**
+     * Get the number of framing bytes that precede the frame contents
+     *
+     * @return Number of bytes to skip before the frame contents
+     */
+    protected int headerLength() {
+        return 0;
+    }
+
+    /**
+     * Get the number of framing bytes that follow the frame contents
+     *
+     * @return Number of bytes to skip after the frame contents
+     */
+    protected int trailerLength() {
+        return 0;
+    }
+
+    protected int maxFrameSize() {
+        return maxFrameSize;
+    }
+}
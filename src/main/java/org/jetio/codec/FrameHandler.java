@@ -0,0 +1,27 @@
+package org.jetio.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.jetio.Session;
+
+/**
+ * Callback for complete frames that have been split out of a session's data by a {@link FrameDecoder}
+ *
+ * It should be re-entrant and <b>WILL</b> be called by multiple threads, but never concurrently for the same session.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public interface FrameHandler {
+
+    /**
+     * Handle a single frame
+     *
+     * @param session Session the frame was read from
+     * @param frame   Frame contents, without any framing bytes. This is a window onto the session's read buffer, and
+     *                is only valid for the duration of the call. Copy anything that needs to be kept.
+     *
+     * @throws IOException if the frame can not be handled, which will cause the session to be closed
+     */
+    void frame( Session session, ByteBuffer frame ) throws IOException;
+}
@@ -0,0 +1,69 @@
+package org.jetio.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Split data into frames that are preceded by a 1, 2, or 4 byte unsigned length of their contents
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class LengthPrefixedFrameDecoder extends FrameDecoder {
+    private final int prefixLength;
+    private final boolean bigEndian;
+
+    /**
+     * Create a decoder for big-endian prefixes that accepts frames of any size that fits in a read buffer
+     *
+     * @param handler      Handler for decoded frames
+     * @param prefixLength Length of the prefix; 1, 2 or 4 bytes
+     */
+    public LengthPrefixedFrameDecoder( FrameHandler handler, int prefixLength ) {
+        this( handler, prefixLength, ByteOrder.BIG_ENDIAN, Integer.MAX_VALUE );
+    }
+
+    /**
+     * @param handler      Handler for decoded frames
+     * @param prefixLength Length of the prefix; 1, 2 or 4 bytes
+     * @param order        Byte order of the prefix
+     * @param maxFrameSize Maximum size of a frame's contents, larger frames cause the session to be closed
+     */
+    public LengthPrefixedFrameDecoder( FrameHandler handler, int prefixLength, ByteOrder order, int maxFrameSize ) {
+        super( handler, maxFrameSize );
+
+        if ( prefixLength != 1 && prefixLength != 2 && prefixLength != 4 ) {
+            throw new IllegalArgumentException( "prefixLength must be 1, 2 or 4 bytes" );
+        }
+
+        this.prefixLength = prefixLength;
+        this.bigEndian = ByteOrder.BIG_ENDIAN.equals( order );
+    }
+
+    @Override
+    protected int frameLength( ByteBuffer data, int start, int limit ) throws IOException {
+        if ( limit - start < prefixLength ) {
+            return -1;
+        }
+
+        // Assemble the prefix by hand, since the buffer's own byte order may have been changed by whoever last used it
+        int length = 0;
+
+        for ( int i = 0; i < prefixLength; i++ ) {
+            int b = data.get( start + ( bigEndian ? i : prefixLength - 1 - i ) ) & 0xFF;
+
+            length = ( length << 8 ) | b;
+        }
+
+        if ( length < 0 ) {
+            throw new IOException( "frame length of " + ( length & 0xFFFFFFFFL ) + " bytes is too large" );
+        }
+
+        return length;
+    }
+
+    @Override
+    protected int headerLength() {
+        return prefixLength;
+    }
+}
@@ -0,0 +1,61 @@
+package org.jetio.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that many threads can update at once without contending with each other. Updates are spread across
+ * cells, each on its own cache line, picked by the updating thread. Reading sums the cells, so it is slower and
+ * only as consistent as a snapshot taken while updates continue can be.
+ *
+ * A counter can go down as well as up, so also serves to track how many of something are outstanding.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public final class Counter {
+    /** Longs per 64 byte cache line */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    public Counter() {
+        int stripes = Integer.highestOneBit( Math.max( 1, Runtime.getRuntime().availableProcessors() * 2 - 1 ) ) << 1;
+
+        this.cells = new AtomicLongArray( stripes * PADDING );
+        this.mask = stripes - 1;
+    }
+
+    public void increment() {
+        add( 1 );
+    }
+
+    public void decrement() {
+        add( -1 );
+    }
+
+    public void add( long delta ) {
+        cells.getAndAdd( cell(), delta );
+    }
+
+    public long get() {
+        long sum = 0;
+
+        for ( int i = 0; i < cells.length(); i += PADDING ) {
+            sum += cells.get( i );
+        }
+
+        return sum;
+    }
+
+    private int cell() {
+        // Fibonacci hashing spreads sequential thread ids across the stripes
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+
+        return ( (int) ( id >>> 32 ) & mask ) * PADDING;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString( get() );
+    }
+}
@@ -0,0 +1,10 @@
+package org.jetio.metrics;
+
+/**
+ * A value that is sampled when metrics are read, rather than updated as things happen
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public interface Gauge {
+    long value();
+}
@@ -0,0 +1,116 @@
+package org.jetio.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values, such as durations in nanoseconds.
+ *
+ * Values are counted in buckets that split each power of two into eight, so any value is reported within 12.5% of
+ * what was recorded, using a fixed 4KiB regardless of the range of values. Recording is a single atomic increment,
+ * plus updating the maximum when it is exceeded.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( ( 64 - SUB_BUCKET_BITS + 1 ) << SUB_BUCKET_BITS );
+    private final AtomicLong max = new AtomicLong();
+    private final Counter total = new Counter();
+
+    public void record( long value ) {
+        if ( value < 0 ) {
+            value = 0;
+        }
+
+        buckets.incrementAndGet( index( value ) );
+        total.add( value );
+
+        long current;
+
+        while ( value > ( current = max.get() ) ) {
+            if ( max.compareAndSet( current, value ) ) {
+                break;
+            }
+        }
+    }
+
+    /** @return Number of values recorded */
+    public long count() {
+        long count = 0;
+
+        for ( int i = 0; i < buckets.length(); i++ ) {
+            count += buckets.get( i );
+        }
+
+        return count;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long count = count();
+
+        return 0 == count ? 0 : total.get() / (double) count;
+    }
+
+    /**
+     * Get the value below which a percentage of the recorded values fall
+     *
+     * @param percentile Percentage, between 0 and 100
+     *
+     * @return The highest value in the bucket the percentile falls in, capped at the maximum value recorded
+     */
+    public long percentile( double percentile ) {
+        long count = count();
+
+        if ( 0 == count ) {
+            return 0;
+        }
+
+        long target = Math.max( 1, (long) Math.ceil( percentile / 100 * count ) );
+        long seen = 0;
+
+        for ( int i = 0; i < buckets.length(); i++ ) {
+            seen += buckets.get( i );
+
+            if ( seen >= target ) {
+                return Math.min( highestValue( i ), max() );
+            }
+        }
+
+        return max();
+    }
+
+    static int index( long value ) {
+        if ( value < SUB_BUCKETS ) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros( value );
+        int mantissa = (int) ( value >>> ( exponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS - 1 );
+
+        return ( exponent - SUB_BUCKET_BITS + 1 ) << SUB_BUCKET_BITS | mantissa;
+    }
+
+    static long highestValue( int index ) {
+        if ( index < SUB_BUCKETS ) {
+            return index;
+        }
+
+        int shift = ( index >>> SUB_BUCKET_BITS ) - 1;
+        long mantissa = SUB_BUCKETS + ( index & ( SUB_BUCKETS - 1 ) );
+
+        return ( ( mantissa + 1 ) << shift ) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count() + " mean=" + Math.round( mean() ) + " p50=" + percentile( 50 ) + " p99="
+               + percentile( 99 ) + " p99.9=" + percentile( 99.9 ) + " max=" + max();
+    }
+}
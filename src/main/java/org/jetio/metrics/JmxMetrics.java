@@ -0,0 +1,151 @@
+package org.jetio.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Exposes {@link Metrics} over JMX, as read-only attributes. Counters and gauges appear under their own names, and each
+ * histogram as a set of attributes suffixed with the statistic, such as {@code read.selector.loop.nanos.p99}.
+ *
+ * Attributes are read live, and metrics created after registration show up the next time the bean is described.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class JmxMetrics implements DynamicMBean {
+    private static final String[] STATISTICS = { "count", "mean", "p50", "p99", "p99.9", "max" };
+
+    private final Metrics metrics;
+    private final ObjectName name;
+
+    /**
+     * Register metrics with the platform MBean server
+     *
+     * @param metrics Metrics to expose
+     * @param name    Name of the instance, becomes the name property of the bean
+     * @param id      Distinguishes instances with the same name, becomes the id property of the bean
+     *
+     * @throws JMException if the bean could not be registered
+     */
+    public JmxMetrics( Metrics metrics, String name, int id ) throws JMException {
+        this.metrics = metrics;
+        this.name = new ObjectName( "org.jetio:type=Metrics,name=" + ObjectName.quote( name ) + ",id=" + id );
+
+        ManagementFactory.getPlatformMBeanServer().registerMBean( this, this.name );
+    }
+
+    public void unregister() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean( name );
+    }
+
+    @Override
+    public Object getAttribute( String attribute ) throws AttributeNotFoundException {
+        Counter counter = metrics.counters().get( attribute );
+
+        if ( null != counter ) {
+            return counter.get();
+        }
+
+        Gauge gauge = metrics.gauges().get( attribute );
+
+        if ( null != gauge ) {
+            return gauge.value();
+        }
+
+        for ( String statistic : STATISTICS ) {
+            if ( attribute.endsWith( "." + statistic ) ) {
+                String histogram = attribute.substring( 0, attribute.length() - statistic.length() - 1 );
+
+                if ( metrics.histograms().containsKey( histogram ) ) {
+                    return statistic( metrics.histograms().get( histogram ), statistic );
+                }
+            }
+        }
+
+        throw new AttributeNotFoundException( attribute );
+    }
+
+    private static long statistic( Histogram histogram, String statistic ) {
+        if ( "count".equals( statistic ) ) {
+            return histogram.count();
+        } else if ( "mean".equals( statistic ) ) {
+            return Math.round( histogram.mean() );
+        } else if ( "max".equals( statistic ) ) {
+            return histogram.max();
+        } else {
+            return histogram.percentile( Double.parseDouble( statistic.substring( 1 ) ) );
+        }
+    }
+
+    @Override
+    public AttributeList getAttributes( String[] attributes ) {
+        AttributeList list = new AttributeList();
+
+        for ( String attribute : attributes ) {
+            try {
+                list.add( new Attribute( attribute, getAttribute( attribute ) ) );
+            } catch( AttributeNotFoundException e ) {
+                // left out, as the contract allows
+            }
+        }
+
+        return list;
+    }
+
+    @Override
+    public void setAttribute( Attribute attribute ) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException( "metrics are read-only" );
+    }
+
+    @Override
+    public AttributeList setAttributes( AttributeList attributes ) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke( String actionName, Object[] params, String[] signature ) throws ReflectionException {
+        throw new ReflectionException( new NoSuchMethodException( actionName ) );
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+
+        for ( String counter : metrics.counters().keySet() ) {
+            attributes.add( attribute( counter, "counter" ) );
+        }
+
+        for ( String gauge : metrics.gauges().keySet() ) {
+            attributes.add( attribute( gauge, "gauge" ) );
+        }
+
+        for ( Map.Entry<String, Histogram> entry : metrics.histograms().entrySet() ) {
+            for ( String statistic : STATISTICS ) {
+                attributes.add( attribute( entry.getKey() + "." + statistic, "histogram " + statistic ) );
+            }
+        }
+
+        return new MBeanInfo( getClass().getName(),
+                              "JetIO metrics",
+                              attributes.toArray( new MBeanAttributeInfo[attributes.size()] ),
+                              null,
+                              new MBeanOperationInfo[0],
+                              null );
+    }
+
+    private static MBeanAttributeInfo attribute( String name, String description ) {
+        return new MBeanAttributeInfo( name, Long.class.getName(), description, true, false, false );
+    }
+}
@@ -0,0 +1,34 @@
+package org.jetio.metrics;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Log every metric at info level, one line each
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class LoggingMetricsReporter implements MetricsReporter {
+    private static final Logger logger = LoggerFactory.getLogger( LoggingMetricsReporter.class );
+
+    @Override
+    public void report( Metrics metrics ) {
+        if ( !logger.isInfoEnabled() ) {
+            return;
+        }
+
+        for ( Map.Entry<String, Counter> entry : metrics.counters().entrySet() ) {
+            logger.info( "{} {}", entry.getKey(), entry.getValue() );
+        }
+
+        for ( Map.Entry<String, Gauge> entry : metrics.gauges().entrySet() ) {
+            logger.info( "{} {}", entry.getKey(), entry.getValue().value() );
+        }
+
+        for ( Map.Entry<String, Histogram> entry : metrics.histograms().entrySet() ) {
+            logger.info( "{} {}", entry.getKey(), entry.getValue() );
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.jetio.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Named metrics for a single JetIO instance
+ *
+ * Metrics are created as they are first asked for, and then live as long as the instance does. Components hold on to
+ * the metrics they update, so that only reading them goes through here.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class Metrics {
+    /** Connections accepted */
+    public static final String ACCEPTED = "sessions.accepted";
+    /** Connections made out to other hosts */
+    public static final String CONNECTED = "sessions.connected";
+    /** Sessions currently open */
+    public static final String OPEN = "sessions.open";
+    /** Sessions closed */
+    public static final String CLOSED = "sessions.closed";
+    /** Sessions failed for going past one of their timeouts */
+    public static final String TIMED_OUT = "sessions.timedOut";
+    /** Connections closed as soon as they were accepted, by admission control */
+    public static final String REJECTED = "sessions.rejected";
+    /** Bytes read by JetIO itself, not counting what a {@link org.jetio.MessageReader} reads on its own */
+    public static final String BYTES_READ = "bytes.read";
+    public static final String BYTES_WRITTEN = "bytes.written";
+    /** Bytes queued to be written, across all sessions */
+    public static final String WRITE_QUEUED = "bytes.queued";
+    /**
+     * Nanoseconds spent handling each pass of a selector loop, excluding the time spent blocked in select. Prefixed with
+     * the operation the selector is for, as in {@code read.selector.loop.nanos}.
+     */
+    public static final String SELECT_LOOP = "selector.loop.nanos";
+    /** Keys selected per pass of a selector loop, prefixed like {@link #SELECT_LOOP} */
+    public static final String SELECTED_KEYS = "selector.selected";
+    /** Sessions waiting to be read */
+    public static final String READ_NEXT_DEPTH = "queue.readNext";
+    /** Sessions with data waiting for a {@link org.jetio.MessageReader} */
+    public static final String READ_DEPTH = "queue.read";
+    /** Nanoseconds a task waited for a worker thread, sampled by overload detection */
+    public static final String QUEUE_WAIT = "queue.wait.nanos";
+    /** Sessions waiting to go back into a read selector */
+    public static final String READ_SELECTOR_DEPTH = "queue.addToReadSelector";
+    /** Direct memory allocated for buffers */
+    public static final String BUFFERS_ALLOCATED = "buffers.allocated";
+    /** Direct memory in buffers that are sitting in the pool, not counting those cached by individual threads */
+    public static final String BUFFERS_POOLED = "buffers.pooled";
+
+    private final ConcurrentSkipListMap<String, Counter> counters = new ConcurrentSkipListMap<String, Counter>();
+    private final ConcurrentSkipListMap<String, Histogram> histograms = new ConcurrentSkipListMap<String, Histogram>();
+    private final ConcurrentSkipListMap<String, Gauge> gauges = new ConcurrentSkipListMap<String, Gauge>();
+
+    public Counter counter( String name ) {
+        Counter counter = counters.get( name );
+
+        if ( null == counter ) {
+            Counter created = new Counter();
+
+            counter = counters.putIfAbsent( name, created );
+
+            if ( null == counter ) {
+                counter = created;
+            }
+        }
+
+        return counter;
+    }
+
+    public Histogram histogram( String name ) {
+        Histogram histogram = histograms.get( name );
+
+        if ( null == histogram ) {
+            Histogram created = new Histogram();
+
+            histogram = histograms.putIfAbsent( name, created );
+
+            if ( null == histogram ) {
+                histogram = created;
+            }
+        }
+
+        return histogram;
+    }
+
+    public void gauge( String name, Gauge gauge ) {
+        gauges.put( name, gauge );
+    }
+
+    public SortedMap<String, Counter> counters() {
+        return Collections.unmodifiableSortedMap( counters );
+    }
+
+    public SortedMap<String, Histogram> histograms() {
+        return Collections.unmodifiableSortedMap( histograms );
+    }
+
+    public SortedMap<String, Gauge> gauges() {
+        return Collections.unmodifiableSortedMap( gauges );
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for ( Map.Entry<String, Counter> entry : counters.entrySet() ) {
+            builder.append( entry.getKey() ).append( '=' ).append( entry.getValue() ).append( '\n' );
+        }
+
+        for ( Map.Entry<String, Gauge> entry : gauges.entrySet() ) {
+            builder.append( entry.getKey() ).append( '=' ).append( entry.getValue().value() ).append( '\n' );
+        }
+
+        for ( Map.Entry<String, Histogram> entry : histograms.entrySet() ) {
+            builder.append( entry.getKey() ).append( ' ' ).append( entry.getValue() ).append( '\n' );
+        }
+
+        return builder.toString();
+    }
+}
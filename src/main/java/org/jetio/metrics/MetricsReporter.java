@@ -0,0 +1,13 @@
+package org.jetio.metrics;
+
+/**
+ * Component that periodically publishes {@link Metrics} somewhere
+ *
+ * It is called from a single thread, at the {@link org.jetio.Configuration#getMetricsReportInterval() interval} it
+ * was configured with.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public interface MetricsReporter {
+    void report( Metrics metrics );
+}
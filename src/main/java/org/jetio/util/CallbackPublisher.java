@@ -0,0 +1,22 @@
+package org.jetio.util;
+
+import org.jetlang.channels.Publisher;
+import org.jetlang.core.Callback;
+
+/**
+ * a {@link Publisher} that invokes a {@link Callback} on the publishing thread
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class CallbackPublisher<T> implements Publisher<T> {
+    private final Callback<T> callback;
+
+    public CallbackPublisher( Callback<T> callback ) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void publish( T msg ) {
+        callback.onMessage( msg );
+    }
+}
@@ -3,23 +3,86 @@ package org.jetio.util;
 import java.util.concurrent.Executor;
 
 import org.jetlang.core.BatchExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
- * a {@link BatchExecutor} that delegates each item to a {@link Executor}
+ * a {@link BatchExecutor} that delegates to a {@link Executor}
+ *
+ * By default each item of a batch is its own task. A batch may instead be split into a bounded number of contiguous
+ * chunks, each run as a single task, so that a burst of work costs a few queue insertions and thread wakeups rather
+ * than one per item. Items in a chunk run one after another, so this only suits items that don't block.
  *
  * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
  */
 public class ExecutorBatchExecutor implements BatchExecutor {
+    private static final Logger logger = LoggerFactory.getLogger( ExecutorBatchExecutor.class );
+
     private final Executor executor;
+    private final int maximumTasks;
 
     public ExecutorBatchExecutor( Executor executor ) {
+        this( executor, Integer.MAX_VALUE );
+    }
+
+    /**
+     * @param executor     Executor to run batches on
+     * @param maximumTasks Most tasks a batch is split into
+     */
+    public ExecutorBatchExecutor( Executor executor, int maximumTasks ) {
+        if ( maximumTasks < 1 ) {
+            throw new IllegalArgumentException( "maximumTasks must be at least 1" );
+        }
+
         this.executor = executor;
+        this.maximumTasks = maximumTasks;
     }
 
     @Override
     public void execute( Runnable[] toExecute ) {
-        for ( Runnable runnable : toExecute ) {
-            executor.execute( runnable );
+        if ( toExecute.length <= maximumTasks ) {
+            for ( Runnable runnable : toExecute ) {
+                executor.execute( runnable );
+            }
+
+            return;
+        }
+
+        // Spread the remainder over the first chunks, so they differ in size by at most one
+        int size = toExecute.length / maximumTasks;
+        int larger = toExecute.length % maximumTasks;
+        int start = 0;
+
+        for ( int i = 0; i < maximumTasks; i++ ) {
+            int end = start + size + ( i < larger ? 1 : 0 );
+
+            executor.execute( new Chunk( toExecute, start, end ) );
+
+            start = end;
+        }
+    }
+
+    private static class Chunk implements Runnable {
+        private final Runnable[] runnables;
+        private final int start;
+        private final int end;
+
+        Chunk( Runnable[] runnables, int start, int end ) {
+            this.runnables = runnables;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            for ( int i = start; i < end; i++ ) {
+                try {
+                    runnables[i].run();
+                } catch( RuntimeException e ) {
+                    // Don't let one failure strand the rest of the chunk
+                    logger.error( "Exception running batched task", e );
+                }
+            }
         }
     }
 }
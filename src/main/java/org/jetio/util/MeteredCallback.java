@@ -0,0 +1,26 @@
+package org.jetio.util;
+
+import org.jetio.metrics.Counter;
+import org.jetlang.core.Callback;
+
+/**
+ * Counts down messages published through a {@link MeteredPublisher} as they are delivered
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class MeteredCallback<T> implements Callback<T> {
+    private final Callback<T> callback;
+    private final Counter depth;
+
+    public MeteredCallback( Callback<T> callback, Counter depth ) {
+        this.callback = callback;
+        this.depth = depth;
+    }
+
+    @Override
+    public void onMessage( T message ) {
+        depth.decrement();
+
+        callback.onMessage( message );
+    }
+}
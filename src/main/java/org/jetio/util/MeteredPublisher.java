@@ -0,0 +1,27 @@
+package org.jetio.util;
+
+import org.jetio.metrics.Counter;
+import org.jetlang.channels.Publisher;
+
+/**
+ * Counts messages up as they are published, to be counted back down by a {@link MeteredCallback} as they are
+ * delivered, giving the depth of the queue in between.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class MeteredPublisher<T> implements Publisher<T> {
+    private final Publisher<T> publisher;
+    private final Counter depth;
+
+    public MeteredPublisher( Publisher<T> publisher, Counter depth ) {
+        this.publisher = publisher;
+        this.depth = depth;
+    }
+
+    @Override
+    public void publish( T msg ) {
+        depth.increment();
+
+        publisher.publish( msg );
+    }
+}
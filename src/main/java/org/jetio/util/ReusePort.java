@@ -0,0 +1,104 @@
+package org.jetio.util;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Set;
+
+/**
+ * Sets SO_REUSEPORT on listening sockets, so that several of them can be bound to the same address and the kernel
+ * spreads new connections across them. The option is looked up reflectively, as it only exists from Java 9 on, and
+ * then only on platforms (such as Linux) that support it.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public final class ReusePort {
+    private static final Object SO_REUSEPORT;
+    private static final Method SET_OPTION;
+
+    static {
+        Object option = null;
+        Method setOption = null;
+
+        try {
+            Class<?> socketOption = Class.forName( "java.net.SocketOption" );
+
+            option = Class.forName( "java.net.StandardSocketOptions" ).getField( "SO_REUSEPORT" ).get( null );
+            setOption = ServerSocketChannel.class.getMethod( "setOption", socketOption, Object.class );
+
+            if ( !isSupported( option ) ) {
+                option = null;
+            }
+        } catch( ClassNotFoundException e ) {
+            option = null;
+        } catch( NoSuchFieldException e ) {
+            option = null;
+        } catch( NoSuchMethodException e ) {
+            option = null;
+        } catch( IllegalAccessException e ) {
+            option = null;
+        } catch( IOException e ) {
+            option = null;
+        }
+
+        SO_REUSEPORT = option;
+        SET_OPTION = setOption;
+    }
+
+    private ReusePort() {
+    }
+
+    private static boolean isSupported( Object option ) throws IOException {
+        ServerSocketChannel probe = ServerSocketChannel.open();
+
+        try {
+            Set<?> supported = (Set<?>) ServerSocketChannel.class.getMethod( "supportedOptions" ).invoke( probe );
+
+            return supported.contains( option );
+        } catch( NoSuchMethodException e ) {
+            return false;
+        } catch( IllegalAccessException e ) {
+            return false;
+        } catch( InvocationTargetException e ) {
+            return false;
+        } finally {
+            probe.close();
+        }
+    }
+
+    /**
+     * Can SO_REUSEPORT be set on this runtime and platform
+     *
+     * @return True if SO_REUSEPORT is available
+     */
+    public static boolean isAvailable() {
+        return null != SO_REUSEPORT;
+    }
+
+    /**
+     * Set SO_REUSEPORT on a listening socket, which must not be bound yet
+     *
+     * @param channel Listening socket
+     *
+     * @throws IOException if the option could not be set
+     * @throws UnsupportedOperationException if SO_REUSEPORT isn't available
+     */
+    public static void enable( ServerSocketChannel channel ) throws IOException {
+        if ( !isAvailable() ) {
+            throw new UnsupportedOperationException( "SO_REUSEPORT requires Java 9 or later on a supporting platform" );
+        }
+
+        try {
+            SET_OPTION.invoke( channel, SO_REUSEPORT, Boolean.TRUE );
+        } catch( IllegalAccessException e ) {
+            throw new UnsupportedOperationException( "unable to set SO_REUSEPORT", e );
+        } catch( InvocationTargetException e ) {
+            if ( e.getCause() instanceof IOException ) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new UnsupportedOperationException( "unable to set SO_REUSEPORT", e.getCause() );
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.jetio.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that start a virtual thread per task, on runtimes that have them (Java 21 and later). They are
+ * looked up reflectively, so JetIO still builds and runs on older runtimes.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public final class VirtualThreads {
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+
+        try {
+            Class<?> builder = Class.forName( "java.lang.Thread$Builder" );
+
+            ofVirtual = Thread.class.getMethod( "ofVirtual" );
+            name = builder.getMethod( "name", String.class, long.class );
+            factory = builder.getMethod( "factory" );
+            newThreadPerTaskExecutor = Executors.class.getMethod( "newThreadPerTaskExecutor", ThreadFactory.class );
+        } catch( ClassNotFoundException e ) {
+            ofVirtual = null;
+        } catch( NoSuchMethodException e ) {
+            ofVirtual = null;
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Can virtual threads be used on this runtime
+     *
+     * @return True if virtual threads are available
+     */
+    public static boolean isAvailable() {
+        return null != OF_VIRTUAL;
+    }
+
+    /**
+     * Create an executor that runs each task on a new virtual thread
+     *
+     * @param name Name of the JetIO instance, for naming threads
+     * @param id   Id of the JetIO instance, for naming threads
+     *
+     * @return Executor of virtual threads
+     *
+     * @throws UnsupportedOperationException if virtual threads aren't available
+     */
+    public static ExecutorService newExecutor( String name, int id ) {
+        if ( !isAvailable() ) {
+            throw new UnsupportedOperationException( "virtual threads require Java 21 or later" );
+        }
+
+        try {
+            Object builder = NAME.invoke( OF_VIRTUAL.invoke( null ), "worker " + name + "-" + id + "-", 1L );
+            ThreadFactory factory = (ThreadFactory) FACTORY.invoke( builder );
+
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke( null, factory );
+        } catch( IllegalAccessException e ) {
+            throw new UnsupportedOperationException( "unable to create virtual threads", e );
+        } catch( InvocationTargetException e ) {
+            throw new UnsupportedOperationException( "unable to create virtual threads", e.getCause() );
+        }
+    }
+}
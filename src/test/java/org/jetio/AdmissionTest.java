@@ -0,0 +1,55 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.jetio.metrics.Metrics;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author <a href="mailto:peter.royal@pobox.com">peter royal</a> */
+public class AdmissionTest {
+    private ServerSocketChannel server;
+
+    @Before
+    public void listen() throws IOException {
+        server = ServerSocketChannel.open();
+        server.socket().bind( new InetSocketAddress( "localhost", 0 ) );
+    }
+
+    @After
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel.open( server.socket().getLocalSocketAddress() );
+
+        return server.accept();
+    }
+
+    @Test
+    public void connectionsThatFailConfigurationGiveBackTheirSlots() throws IOException {
+        Configuration config = new Configuration();
+
+        config.setMaxConnections( 1 );
+        config.setMaxConnectionsPerAddress( 1 );
+
+        Admission admission = new Admission( config, new Metrics() );
+        SocketChannel first = connect();
+
+        assertTrue( admission.admit( first ) );
+
+        // As the acceptor does when the peer resets before the socket can be configured
+        admission.release( first );
+        first.close();
+
+        SocketChannel second = connect();
+
+        assertTrue( admission.admit( second ) );
+        assertFalse( admission.admit( connect() ) );
+    }
+}
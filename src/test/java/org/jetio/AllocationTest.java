@@ -0,0 +1,159 @@
+package org.jetio;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.jetio.metrics.Metrics;
+import org.jetlang.channels.Publisher;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Once warmed up, reading a message with {@link ReadAvailable} and writing a reply through the {@link WriteQueue}
+ * shouldn't allocate anything on the thread doing the work.
+ *
+ * @author <a href="mailto:peter.royal@pobox.com">peter royal</a>
+ */
+public class AllocationTest {
+    private static final int MESSAGE = 7;
+    private static final int WARMUP = 20000;
+    private static final int ROUND_TRIPS = 10000;
+
+    private final ByteBuffer reply = ByteBuffer.allocateDirect( MESSAGE );
+    private final ByteBuffer[] replies = { reply };
+    private final ByteBuffer request = ByteBuffer.allocateDirect( MESSAGE );
+    private final ByteBuffer response = ByteBuffer.allocateDirect( MESSAGE );
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private Session session;
+    private Event event;
+    private ReadAvailable readAvailable;
+    private int echoed;
+
+    @Before
+    public void connect() throws IOException {
+        server = ServerSocketChannel.open();
+        server.socket().bind( new InetSocketAddress( "localhost", 0 ) );
+
+        client = SocketChannel.open( server.socket().getLocalSocketAddress() );
+
+        Configuration config = new Configuration();
+        Metrics metrics = new Metrics();
+
+        session = new Session( server.accept(),
+                               AllocationTest.<Event>discard(),
+                               AllocationTest.<Event>discard(),
+                               AllocationTest.<DataEvent<IOException>>discard(),
+                               AllocationTest.<Event>discard(),
+                               new SessionBufferSource( new BufferQueue( config ), config.getBufferSlizeSize() ),
+                               0,
+                               true,
+                               config,
+                               metrics );
+        event = new Event( session );
+
+        // Echo fixed-length messages, replying with a buffer that isn't one of the pool's sizes, so it is let go of
+        readAvailable = new ReadAvailable( new MessageDecoder() {
+            @Override
+            public void decode( Session session, ByteBuffer data ) {
+                while ( data.remaining() >= MESSAGE ) {
+                    reply.clear();
+
+                    for ( int i = 0; i < MESSAGE; i++ ) {
+                        reply.put( data.get() );
+                    }
+
+                    reply.flip();
+
+                    session.write( replies );
+                    echoed++;
+                }
+            }
+        }, AllocationTest.<Event>discard(), AllocationTest.<DataEvent<IOException>>discard(),
+           config.getBufferMaximumSize(), metrics );
+    }
+
+    @After
+    public void close() throws IOException {
+        session.close();
+        client.close();
+        server.close();
+    }
+
+    @Test( timeout = 60000L )
+    public void echoRoundTripDoesNotAllocate() throws IOException {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if ( !( threads instanceof com.sun.management.ThreadMXBean ) ) {
+            return;
+        }
+
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+
+        if ( !allocations.isThreadAllocatedMemorySupported() ) {
+            return;
+        }
+
+        allocations.setThreadAllocatedMemoryEnabled( true );
+
+        long id = Thread.currentThread().getId();
+
+        for ( int i = 0; i < WARMUP; i++ ) {
+            roundTrip( allocations, id );
+        }
+
+        // Reading the counter may itself allocate, so take that out of the measurement
+        long overhead = allocations.getThreadAllocatedBytes( id );
+
+        overhead = allocations.getThreadAllocatedBytes( id ) - overhead;
+
+        long allocated = 0;
+
+        for ( int i = 0; i < ROUND_TRIPS; i++ ) {
+            allocated += roundTrip( allocations, id ) - overhead;
+        }
+
+        // Anything allocated per message is at least an object header each time around. A stray allocation or two, such
+        // as objects the JIT had optimized away being materialized when code is deoptimized, isn't.
+        assertTrue( allocated + " bytes allocated over " + ROUND_TRIPS + " round trips", allocated < ROUND_TRIPS );
+    }
+
+    /** @return Bytes allocated handling the request and writing the reply, not counting the client's side of things */
+    private long roundTrip( com.sun.management.ThreadMXBean allocations, long id ) throws IOException {
+        int expected = echoed + 1;
+
+        request.clear();
+        client.write( request );
+
+        long allocated = 0;
+
+        while ( echoed < expected ) {
+            long before = allocations.getThreadAllocatedBytes( id );
+
+            readAvailable.onMessage( event );
+
+            allocated += allocations.getThreadAllocatedBytes( id ) - before;
+        }
+
+        response.clear();
+
+        while ( response.hasRemaining() ) {
+            client.read( response );
+        }
+
+        return allocated;
+    }
+
+    private static <T> Publisher<T> discard() {
+        return new Publisher<T>() {
+            @Override
+            public void publish( T msg ) {
+            }
+        };
+    }
+}
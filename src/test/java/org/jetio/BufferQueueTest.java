@@ -0,0 +1,286 @@
+package org.jetio;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author <a href="mailto:peter.royal@pobox.com">peter royal</a> */
+public class BufferQueueTest {
+    private static final int SLICE = 64;
+    private static final int SLICES = 256;
+
+    private final BufferQueue queue = new BufferQueue( configuration( 0, BufferExhaustion.Fail ) );
+
+    private static Configuration configuration( long maxBufferMemory, BufferExhaustion exhaustion ) {
+        Configuration config = new Configuration();
+
+        config.setBufferSlizeSize( SLICE );
+        config.setBufferMinimumSize( SLICE );
+        config.setBufferMaximumSize( SLICE );
+        config.setBufferAllocationSize( SLICE * SLICES );
+        config.setMaxBufferMemory( maxBufferMemory );
+        config.setBufferExhaustion( exhaustion );
+        config.setBufferExhaustionTimeout( 5000 );
+
+        return config;
+    }
+
+    private static List<ByteBuffer> drain( BufferQueue queue ) {
+        List<ByteBuffer> acquired = new ArrayList<ByteBuffer>();
+
+        for ( int i = 0; i < SLICES; i++ ) {
+            acquired.add( queue.acquire() );
+        }
+
+        return acquired;
+    }
+
+    @Test
+    public void slicesReleasedOnAnotherThreadAreReused() throws InterruptedException {
+        final List<ByteBuffer> acquired = new ArrayList<ByteBuffer>();
+
+        for ( int i = 0; i < SLICES; i++ ) {
+            ByteBuffer buffer = queue.acquire();
+
+            assertEquals( SLICE, buffer.capacity() );
+            assertTrue( buffer.isDirect() );
+
+            acquired.add( buffer );
+        }
+
+        Thread releaser = new Thread() {
+            @Override
+            public void run() {
+                queue.release( acquired );
+            }
+        };
+
+        releaser.start();
+        releaser.join();
+
+        // Everything but what the releasing thread still caches makes it back, without allocating more
+        Map<ByteBuffer, Boolean> original = new IdentityHashMap<ByteBuffer, Boolean>();
+
+        for ( ByteBuffer buffer : acquired ) {
+            original.put( buffer, Boolean.TRUE );
+        }
+
+        for ( int i = 0; i < SLICES - 2 * BufferQueue.MAGAZINE_SIZE; i++ ) {
+            assertTrue( original.containsKey( queue.acquire() ) );
+        }
+    }
+
+    @Test
+    public void concurrentThreadsNeverShareASlice() throws Throwable {
+        final int threads = 8;
+        final Map<ByteBuffer, Boolean> held = Collections.synchronizedMap( new IdentityHashMap<ByteBuffer, Boolean>() );
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch done = new CountDownLatch( threads );
+
+        for ( int t = 0; t < threads; t++ ) {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        List<ByteBuffer> mine = new ArrayList<ByteBuffer>();
+
+                        for ( int i = 0; i < 10000; i++ ) {
+                            ByteBuffer buffer = queue.acquire();
+
+                            if ( null != held.put( buffer, Boolean.TRUE ) ) {
+                                throw new AssertionError( "slice handed out twice" );
+                            }
+
+                            mine.add( buffer );
+
+                            if ( mine.size() == 50 ) {
+                                for ( ByteBuffer b : mine ) {
+                                    held.remove( b );
+                                }
+
+                                queue.release( mine );
+                                mine.clear();
+                            }
+                        }
+                    } catch( Throwable e ) {
+                        failure.compareAndSet( null, e );
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        done.await();
+
+        if ( null != failure.get() ) {
+            throw failure.get();
+        }
+    }
+
+    @Test
+    public void shortLivedThreadsDoNotStrandSlicesWithoutThreadCaches() throws InterruptedException {
+        Configuration config = configuration( 0, BufferExhaustion.Fail );
+
+        config.setVirtualWorkerThreads( true );
+
+        final BufferQueue queue = new BufferQueue( config );
+
+        // Each task runs on a thread of its own, as it would with virtual worker threads
+        for ( int i = 0; i < 1000; i++ ) {
+            Thread task = new Thread() {
+                @Override
+                public void run() {
+                    List<ByteBuffer> acquired = new ArrayList<ByteBuffer>();
+
+                    for ( int j = 0; j < 4; j++ ) {
+                        acquired.add( queue.acquire() );
+                    }
+
+                    queue.release( acquired );
+                }
+            };
+
+            task.start();
+            task.join();
+
+            assertEquals( SLICE * SLICES, queue.allocated() );
+            assertEquals( queue.allocated(), queue.pooled() );
+        }
+    }
+
+    @Test( expected = BufferExhaustedException.class )
+    public void failsOnceAtCeiling() {
+        BufferQueue queue = new BufferQueue( configuration( SLICE * SLICES, BufferExhaustion.Fail ) );
+
+        drain( queue );
+
+        queue.acquire();
+    }
+
+    @Test
+    public void fallsBackToHeapAtCeiling() {
+        BufferQueue queue = new BufferQueue( configuration( SLICE * SLICES, BufferExhaustion.Heap ) );
+
+        drain( queue );
+
+        ByteBuffer buffer = queue.acquire();
+
+        assertFalse( buffer.isDirect() );
+        assertEquals( SLICE, buffer.capacity() );
+        assertEquals( SLICE * SLICES, queue.allocated() );
+
+        queue.release( buffer );
+    }
+
+    @Test
+    public void blocksUntilReleasedAtCeiling() throws InterruptedException {
+        final BufferQueue queue = new BufferQueue( configuration( SLICE * SLICES, BufferExhaustion.Block ) );
+        final List<ByteBuffer> acquired = drain( queue );
+
+        Thread releaser = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep( 50 );
+                } catch( InterruptedException e ) {
+                    return;
+                }
+
+                queue.release( acquired.get( 0 ) );
+            }
+        };
+
+        releaser.start();
+
+        assertSame( acquired.get( 0 ), queue.acquire() );
+
+        releaser.join();
+    }
+
+    @Test
+    public void releasesGoBackThroughTheMagazinesOnceRecovered() {
+        BufferQueue queue = new BufferQueue( configuration( SLICE * SLICES, BufferExhaustion.Fail ) );
+        List<ByteBuffer> acquired = drain( queue );
+
+        try {
+            queue.acquire();
+            fail( "pool should be exhausted" );
+        } catch( BufferExhaustedException e ) {
+            // expected
+        }
+
+        queue.release( acquired );
+
+        // Nobody is waiting, so this thread caches a couple of magazines as it would had the pool never run out
+        assertEquals( SLICE * ( SLICES - 2 * BufferQueue.MAGAZINE_SIZE ), queue.pooled() );
+    }
+
+    @Test
+    public void trimsChunksOnceAllTheirSlicesAreBack() {
+        BufferQueue queue = new BufferQueue( configuration( SLICE * SLICES, BufferExhaustion.Fail ) );
+        List<ByteBuffer> acquired = drain( queue );
+
+        assertEquals( SLICE * SLICES, queue.allocated() );
+
+        queue.release( acquired.subList( 1, SLICES ) );
+
+        // One slice is still out, and the rest are cached by this thread
+        assertEquals( 0, queue.trim() );
+
+        // Now that the pool has been trimmed, this thread hands back what it caches
+        queue.release( acquired.get( 0 ) );
+
+        assertEquals( 1, queue.trim() );
+        assertEquals( 0, queue.allocated() );
+
+        // Room was made under the ceiling for a fresh allocation
+        drain( queue );
+    }
+
+    @Test
+    public void acquiresTheSmallestClassThatFits() {
+        Configuration config = configuration( 0, BufferExhaustion.Fail );
+
+        config.setBufferMaximumSize( SLICE * 16 );
+
+        BufferQueue queue = new BufferQueue( config );
+
+        assertEquals( SLICE, queue.acquire( 1 ).capacity() );
+        assertEquals( SLICE * 2, queue.acquire( SLICE + 1 ).capacity() );
+        assertEquals( SLICE * 16, queue.acquire( SLICE * 16 ).capacity() );
+
+        ByteBuffer buffer = queue.acquire( SLICE * 4 );
+
+        queue.release( buffer );
+
+        assertSame( buffer, queue.acquire( SLICE * 3 ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void refusesLargerThanTheLargestClass() {
+        queue.acquire( SLICE + 1 );
+    }
+
+    @Test
+    public void borrowsALargerClassAtCeiling() {
+        Configuration config = configuration( SLICE * SLICES, BufferExhaustion.Fail );
+
+        config.setBufferMaximumSize( SLICE * 16 );
+
+        BufferQueue queue = new BufferQueue( config );
+
+        queue.release( queue.acquire( SLICE * 16 ) );
+
+        assertEquals( SLICE * 16, queue.acquire( SLICE ).capacity() );
+    }
+}
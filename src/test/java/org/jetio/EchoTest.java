@@ -8,13 +8,21 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
 import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jetio.util.ReusePort;
+import org.jetio.util.VirtualThreads;
 import org.junit.*;
 
 import static org.junit.Assert.*;
@@ -30,6 +38,29 @@ public class EchoTest {
     private int port;
 
     public void start( StreamMessageReader reader ) throws IOException {
+        start( reader, configuration() );
+    }
+
+    public void start( StreamMessageReader reader, Configuration config ) throws IOException {
+        io = new JetIO( new StreamMessageReaderAdapter( reader ), config );
+        io.start();
+    }
+
+    public void start( BufferMessageReader reader ) throws IOException {
+        io = new JetIO( reader, configuration() );
+        io.start();
+    }
+
+    public void start( MessageDecoder decoder ) throws IOException {
+        start( decoder, configuration() );
+    }
+
+    public void start( MessageDecoder decoder, Configuration config ) throws IOException {
+        io = new JetIO( decoder, config );
+        io.start();
+    }
+
+    private Configuration configuration() {
         port = 10748;
 
         Configuration config = new Configuration();
@@ -38,8 +69,7 @@ public class EchoTest {
         config.setBindAddress( new InetSocketAddress( "localhost", port ) );
         config.setReadUponConnect( true );
 
-        io = new JetIO( new StreamMessageReaderAdapter( reader ), config );
-        io.start();
+        return config;
     }
 
     private void echo( int count ) throws IOException {
@@ -126,4 +156,481 @@ public class EchoTest {
         },
               count );
     }
+
+    @Test( timeout = 2000L )
+    public void echoWithRetainedSelectionKeys() throws Exception {
+        Configuration config = configuration();
+        config.setRetainSelectionKeys( true );
+        config.setReadUponConnect( false );
+
+        start( new StreamMessageReader() {
+            @Override
+            public void readMessage( Session session, InputStream in ) throws IOException {
+                BufferedReader reader = new BufferedReader( new InputStreamReader( in, "UTF-8" ) );
+
+                session.write( charset.encode( reader.readLine() ) );
+                session.write( ByteBuffer.wrap( new byte[]{ '\n' } ) );
+            }
+        }, config );
+
+        echo( 1 );
+    }
+
+    @Test( timeout = 2000L )
+    public void echoOnVirtualThreads() throws Exception {
+        Configuration config = configuration();
+        config.setVirtualWorkerThreads( true );
+
+        StreamMessageReader reader = new StreamMessageReader() {
+            @Override
+            public void readMessage( Session session, InputStream in ) throws IOException {
+                BufferedReader reader = new BufferedReader( new InputStreamReader( in, "UTF-8" ) );
+
+                session.write( charset.encode( reader.readLine() ) );
+                session.write( ByteBuffer.wrap( new byte[]{ '\n' } ) );
+            }
+        };
+
+        if ( !VirtualThreads.isAvailable() ) {
+            try {
+                start( reader, config );
+                fail( "virtual threads aren't available before Java 21" );
+            } catch( IllegalArgumentException e ) {
+                return;
+            }
+        }
+
+        start( reader, config );
+        echo( 1 );
+    }
+
+    @Test( timeout = 2000L )
+    public void zeroCopyEcho() throws Exception {
+        start( new BufferMessageReader() {
+            @Override
+            public void readMessage( Session session, ByteBuffer initialData ) throws IOException {
+                // The whole line arrives in one packet, so the buffer it was read into can be written straight back
+                session.write( initialData );
+            }
+        } );
+        echo( 1 );
+    }
+
+    @Test( timeout = 2000L )
+    public void nonBlockingEcho() throws Exception {
+        start( new LineEchoDecoder() );
+        echo( 1 );
+    }
+
+    @Test( timeout = 2000L )
+    public void nonBlockingEchoAcrossReads() throws Exception {
+        start( new LineEchoDecoder() );
+
+        Socket socket = new Socket( "localhost", port );
+        Writer out = new OutputStreamWriter( socket.getOutputStream(), "UTF-8" );
+        BufferedReader in = new BufferedReader( new InputStreamReader( socket.getInputStream(), "UTF-8" ) );
+
+        out.write( "hello " );
+        out.flush();
+
+        Thread.sleep( 100 );
+
+        out.write( "world\nagain\n" );
+        out.flush();
+
+        assertEquals( "hello world", in.readLine() );
+        assertEquals( "again", in.readLine() );
+
+        socket.close();
+    }
+
+    @Test( timeout = 2000L )
+    public void nonBlockingEchoAcrossSelectors() throws Exception {
+        Configuration config = configuration();
+        config.setSelectorCount( 3 );
+
+        start( new LineEchoDecoder(), config );
+
+        for ( int i = 0; i < 6; i++ ) {
+            echo( 1 );
+        }
+    }
+
+    @Test( timeout = 2000L )
+    public void nonBlockingEchoAcrossAcceptors() throws Exception {
+        Configuration config = configuration();
+        config.setAcceptorCount( 3 );
+
+        start( new LineEchoDecoder(), config );
+
+        for ( int i = 0; i < 6; i++ ) {
+            echo( 1 );
+        }
+    }
+
+    @Test( timeout = 2000L )
+    public void nonBlockingEchoAcrossReusedPorts() throws Exception {
+        Configuration config = configuration();
+        config.setAcceptorCount( 3 );
+        config.setReusePort( true );
+
+        if ( !ReusePort.isAvailable() ) {
+            try {
+                start( new LineEchoDecoder(), config );
+                fail( "SO_REUSEPORT isn't available on this runtime" );
+            } catch( IllegalArgumentException e ) {
+                return;
+            }
+        }
+
+        start( new LineEchoDecoder(), config );
+
+        for ( int i = 0; i < 6; i++ ) {
+            echo( 1 );
+        }
+    }
+
+    @Test( timeout = 5000L )
+    public void connectionsPastTheLimitAreClosed() throws Exception {
+        Configuration config = configuration();
+        config.setMaxConnectionsPerAddress( 1 );
+
+        start( new LineEchoDecoder(), config );
+
+        Socket first = new Socket( "localhost", port );
+        Socket second = new Socket( "localhost", port );
+
+        assertEquals( -1, second.getInputStream().read() );
+
+        first.close();
+
+        // The first session is let go of once its close has been noticed
+        while ( true ) {
+            Socket third = new Socket( "localhost", port );
+
+            third.setSoTimeout( 50 );
+
+            try {
+                if ( -1 != third.getInputStream().read() ) {
+                    fail( "nothing was written" );
+                }
+            } catch( SocketTimeoutException e ) {
+                third.close();
+                break;
+            }
+
+            third.close();
+        }
+    }
+
+    @Test( timeout = 2000L )
+    public void idleSessionsAreClosed() throws Exception {
+        Configuration config = configuration();
+        config.setIdleTimeout( 100 );
+        config.setTimerTick( 10 );
+
+        start( new LineEchoDecoder(), config );
+
+        echo( 1 );
+
+        Socket socket = new Socket( "localhost", port );
+
+        assertEquals( -1, socket.getInputStream().read() );
+
+        socket.close();
+    }
+
+    @Test( timeout = 2000L )
+    public void stalledMessagesFreeTheirWorker() throws Exception {
+        Configuration config = configuration();
+        config.setWorkerThreadCount( 1 );
+        config.setReadTimeout( 100 );
+        config.setTimerTick( 10 );
+
+        start( new StreamMessageReader() {
+            @Override
+            public void readMessage( Session session, InputStream in ) throws IOException {
+                BufferedReader reader = new BufferedReader( new InputStreamReader( in, "UTF-8" ) );
+
+                session.write( charset.encode( reader.readLine() + "\n" ) );
+            }
+        }, config );
+
+        // Starts a message that never finishes, which would otherwise hold the only worker
+        Socket stalled = new Socket( "localhost", port );
+
+        stalled.getOutputStream().write( "hello".getBytes( "UTF-8" ) );
+
+        assertEquals( -1, stalled.getInputStream().read() );
+
+        stalled.close();
+
+        echo( 1 );
+    }
+
+    @Test( timeout = 5000L )
+    public void echoOverOutboundConnections() throws Exception {
+        start( new LineEchoDecoder() );
+
+        final BlockingQueue<String> lines = new LinkedBlockingQueue<String>();
+        Configuration config = new Configuration();
+
+        config.setName( "client" );
+        config.setConnectTimeout( 1000 );
+
+        JetIO client = new JetIO( new MessageDecoder() {
+            @Override
+            public void decode( Session session, ByteBuffer data ) throws IOException {
+                lines.add( charset.decode( data ).toString() );
+            }
+        }, config );
+
+        client.start();
+
+        try {
+            ConnectFuture future = client.connect( new InetSocketAddress( "localhost", port ) );
+
+            assertTrue( future.await( 1, TimeUnit.SECONDS ) );
+            assertTrue( future.isSuccess() );
+            assertTrue( future.session().isOutbound() );
+
+            future.session().write( charset.encode( "hello\n" ) );
+
+            assertEquals( "hello\n", lines.take() );
+
+            ConnectionPool pool = client.connectionPool( new InetSocketAddress( "localhost", port ), 2 );
+            Session first = pool.await( 1, TimeUnit.SECONDS );
+
+            assertNotNull( first );
+
+            first.close();
+
+            // The closed connection is replaced, leaving the pool with two open ones again
+            for ( int i = 0; i < 2; i++ ) {
+                Session session = pool.await( 1, TimeUnit.SECONDS );
+
+                assertNotNull( session );
+                assertNotSame( first, session );
+            }
+
+            pool.close();
+        } finally {
+            client.dispose();
+        }
+    }
+
+    @Test( timeout = 5000L )
+    public void refusedConnectionsFail() throws Exception {
+        Configuration config = new Configuration();
+
+        config.setName( "client" );
+
+        JetIO client = new JetIO( new LineEchoDecoder(), config );
+
+        client.start();
+
+        try {
+            ConnectFuture future = client.connect( new InetSocketAddress( "localhost", 10747 ) );
+
+            assertTrue( future.await( 1, TimeUnit.SECONDS ) );
+            assertFalse( future.isSuccess() );
+            assertNotNull( future.cause() );
+        } finally {
+            client.dispose();
+        }
+    }
+
+    @Test( timeout = 2000L )
+    public void echoWithDirectEngine() throws Exception {
+        Configuration config = configuration();
+        config.setExecutionEngine( ExecutionEngine.Direct );
+        config.setReadUponConnect( false );
+
+        start( new StreamMessageReader() {
+            @Override
+            public void readMessage( Session session, InputStream in ) throws IOException {
+                BufferedReader reader = new BufferedReader( new InputStreamReader( in, "UTF-8" ) );
+
+                session.write( charset.encode( reader.readLine() ) );
+                session.write( ByteBuffer.wrap( new byte[]{ '\n' } ) );
+            }
+        }, config );
+
+        echo( 1 );
+        echo( 1 );
+    }
+
+    @Test( timeout = 5000L )
+    public void nonBlockingEchoWithDirectEngineKeepsOrder() throws Exception {
+        Configuration config = configuration();
+        config.setExecutionEngine( ExecutionEngine.Direct );
+        config.setWorkerThreadCount( 4 );
+
+        start( new LineEchoDecoder(), config );
+
+        Socket socket = new Socket( "localhost", port );
+        Writer out = new OutputStreamWriter( socket.getOutputStream(), "UTF-8" );
+        BufferedReader in = new BufferedReader( new InputStreamReader( socket.getInputStream(), "UTF-8" ) );
+
+        for ( int i = 0; i < 1000; i++ ) {
+            out.write( i + "\n" );
+
+            if ( i % 10 == 0 ) {
+                out.flush();
+            }
+        }
+
+        out.flush();
+
+        for ( int i = 0; i < 1000; i++ ) {
+            assertEquals( String.valueOf( i ), in.readLine() );
+        }
+
+        socket.close();
+    }
+
+    @Test( timeout = 5000L )
+    public void nonBlockingEchoStaysInItsLane() throws Exception {
+        Configuration config = configuration();
+        config.setExecutionEngine( ExecutionEngine.Lanes );
+        config.setLaneCount( 4 );
+
+        final Map<Session, Thread> lanes = new ConcurrentHashMap<Session, Thread>();
+        final AtomicInteger strays = new AtomicInteger();
+
+        start( new LineEchoDecoder() {
+            @Override
+            public void decode( Session session, ByteBuffer data ) throws IOException {
+                Thread lane = lanes.get( session );
+
+                if ( null == lane ) {
+                    lanes.put( session, Thread.currentThread() );
+                } else if ( lane != Thread.currentThread() ) {
+                    strays.incrementAndGet();
+                }
+
+                super.decode( session, data );
+            }
+        }, config );
+
+        for ( int c = 0; c < 4; c++ ) {
+            Socket socket = new Socket( "localhost", port );
+            Writer out = new OutputStreamWriter( socket.getOutputStream(), "UTF-8" );
+            BufferedReader in = new BufferedReader( new InputStreamReader( socket.getInputStream(), "UTF-8" ) );
+
+            // Wait for each echo, so that every line is a separate read
+            for ( int i = 0; i < 20; i++ ) {
+                out.write( i + "\n" );
+                out.flush();
+
+                assertEquals( String.valueOf( i ), in.readLine() );
+            }
+
+            socket.close();
+        }
+
+        assertEquals( 4, lanes.size() );
+        assertEquals( 0, strays.get() );
+    }
+
+    @Test( timeout = 2000L )
+    public void nonBlockingEchoWithBatchedWorkerTasks() throws Exception {
+        Configuration config = configuration();
+        config.setWorkerBatchTasks( 2 );
+
+        start( new LineEchoDecoder(), config );
+
+        for ( int i = 0; i < 6; i++ ) {
+            echo( 1 );
+        }
+    }
+
+    @Test( timeout = 2000L )
+    public void nonBlockingEchoLargerThanReadBuffer() throws Exception {
+        Configuration config = configuration();
+        config.setBufferSlizeSize( 256 );
+
+        start( new LineEchoDecoder(), config );
+
+        Socket socket = new Socket( "localhost", port );
+        Writer out = new OutputStreamWriter( socket.getOutputStream(), "UTF-8" );
+        BufferedReader in = new BufferedReader( new InputStreamReader( socket.getInputStream(), "UTF-8" ) );
+        StringBuilder line = new StringBuilder();
+
+        while ( line.length() < 1000 ) {
+            line.append( "hello world " );
+        }
+
+        out.write( line.toString() );
+        out.write( "\n" );
+        out.flush();
+
+        assertEquals( line.toString(), in.readLine() );
+
+        socket.close();
+    }
+
+    @Test( timeout = 5000L )
+    public void instancesWithTheSameNameBothRegisterWithJmx() throws Exception {
+        Configuration config = configuration();
+
+        config.setJmxEnabled( true );
+
+        start( new LineEchoDecoder(), config );
+
+        Configuration other = new Configuration();
+
+        other.setName( config.getName() );
+        other.setJmxEnabled( true );
+
+        JetIO client = new JetIO( new LineEchoDecoder(), other );
+
+        try {
+            client.start();
+        } finally {
+            client.dispose();
+        }
+
+        echo( 1 );
+    }
+
+    @Test( timeout = 5000L )
+    public void connectingAfterDisposalFailsRightAway() throws Exception {
+        start( new LineEchoDecoder() );
+
+        Configuration config = new Configuration();
+
+        config.setName( "client" );
+
+        JetIO client = new JetIO( new LineEchoDecoder(), config );
+
+        client.start();
+        client.dispose();
+
+        ConnectFuture future = client.connect( new InetSocketAddress( "localhost", port ) );
+
+        assertTrue( future.isDone() );
+        assertFalse( future.isSuccess() );
+        assertTrue( future.cause() instanceof ClosedChannelException );
+    }
+
+    /** Echoes each complete line back to the session */
+    private static class LineEchoDecoder implements MessageDecoder {
+        @Override
+        public void decode( Session session, ByteBuffer data ) throws IOException {
+            for ( int i = data.position(); i < data.limit(); i++ ) {
+                if ( data.get( i ) == '\n' ) {
+                    ByteBuffer buffer = session.buffers().acquire( i + 1 - data.position() );
+                    int limit = data.limit();
+
+                    data.limit( i + 1 );
+                    buffer.put( data );
+                    buffer.flip();
+                    data.limit( limit );
+
+                    session.write( buffer );
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package org.jetio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.jetio.metrics.Metrics;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author <a href="mailto:peter.royal@pobox.com">peter royal</a> */
+public class OverloadDetectorTest {
+    /** Executor that holds on to tasks until told to run them, like a pool whose threads are all busy */
+    private final List<Runnable> queued = new ArrayList<Runnable>();
+    private final Executor stalled = new Executor() {
+        @Override
+        public void execute( Runnable command ) {
+            synchronized( queued ) {
+                queued.add( command );
+            }
+        }
+    };
+
+    private Admission admission;
+    private OverloadDetector detector;
+
+    @Before
+    public void startDetector() {
+        Configuration config = new Configuration();
+
+        config.setName( getClass().getSimpleName() );
+        config.setOverloadQueueWait( 20 );
+        config.setOverloadCheckInterval( 5 );
+
+        Metrics metrics = new Metrics();
+
+        admission = new Admission( config, metrics );
+        detector = new OverloadDetector( config, new Executor[]{ stalled }, admission, metrics );
+        detector.start();
+    }
+
+    @After
+    public void disposeDetector() {
+        detector.dispose();
+    }
+
+    @Test( timeout = 5000L )
+    public void pausesWhileWorkWaitsAndResumesOnceItRuns() throws Exception {
+        while ( !admission.isPaused() ) {
+            Thread.sleep( 5 );
+        }
+
+        // Now the pool catches up, running everything as soon as it is queued
+        while ( admission.isPaused() ) {
+            synchronized( queued ) {
+                for ( Runnable task : queued ) {
+                    task.run();
+                }
+
+                queued.clear();
+            }
+
+            Thread.sleep( 1 );
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.jetio;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author <a href="mailto:peter.royal@pobox.com">peter royal</a> */
+public class SelectedKeysTest {
+    private Selector selector;
+    private Pipe pipe;
+    private SelectionKey key;
+
+    @Before
+    public void openPipe() throws Exception {
+        selector = Selector.open();
+        pipe = Pipe.open();
+
+        pipe.source().configureBlocking( false );
+        key = pipe.source().register( selector, SelectionKey.OP_READ );
+
+        pipe.sink().write( ByteBuffer.wrap( new byte[] { 1 } ) );
+    }
+
+    @After
+    public void closePipe() throws Exception {
+        pipe.source().close();
+        pipe.sink().close();
+        selector.close();
+    }
+
+    @Test
+    public void keysAreTakenFromTheSelectorWhetherOrNotInstalled() throws Exception {
+        SelectedKeys keys = new SelectedKeys();
+        boolean installed = keys.install( selector );
+
+        assertEquals( 1, selector.select() );
+
+        if ( !installed ) {
+            keys.gather( selector.selectedKeys() );
+
+            assertTrue( selector.selectedKeys().isEmpty() );
+        }
+
+        assertEquals( 1, keys.size() );
+        assertSame( key, keys.get( 0 ) );
+
+        keys.reset();
+
+        assertEquals( 0, keys.size() );
+
+        // Still readable, so selecting again must report the key again rather than finding it already selected
+        assertEquals( 1, selector.selectNow() );
+
+        if ( !installed ) {
+            keys.gather( selector.selectedKeys() );
+        }
+
+        assertEquals( 1, keys.size() );
+    }
+
+    @Test
+    public void growsPastItsInitialCapacity() {
+        SelectedKeys keys = new SelectedKeys();
+
+        for ( int i = 0; i < 1000; i++ ) {
+            keys.add( key );
+        }
+
+        assertEquals( 1000, keys.size() );
+        assertSame( key, keys.get( 999 ) );
+    }
+}
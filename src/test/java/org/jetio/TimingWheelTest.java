@@ -0,0 +1,89 @@
+package org.jetio;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author <a href="mailto:peter.royal@pobox.com">peter royal</a> */
+public class TimingWheelTest {
+    private TimingWheel wheel;
+
+    @Before
+    public void startWheel() {
+        Configuration config = new Configuration();
+
+        config.setName( getClass().getSimpleName() );
+        config.setTimerTick( 1 );
+
+        wheel = new TimingWheel( config );
+        wheel.start();
+    }
+
+    @After
+    public void disposeWheel() {
+        wheel.dispose();
+    }
+
+    private static class Counting extends Timeout {
+        final AtomicInteger expirations = new AtomicInteger();
+        final CountDownLatch expired = new CountDownLatch( 1 );
+
+        @Override
+        void expired() {
+            expirations.incrementAndGet();
+            expired.countDown();
+        }
+    }
+
+    @Test( timeout = 5000L )
+    public void expiresOnceAfterItsDelay() throws Exception {
+        Counting timeout = new Counting();
+        long start = wheel.now();
+
+        wheel.schedule( timeout, 20 );
+
+        assertTrue( timeout.expired.await( 1, TimeUnit.SECONDS ) );
+        assertTrue( wheel.now() - start >= 20 );
+
+        Thread.sleep( 50 );
+
+        assertEquals( 1, timeout.expirations.get() );
+    }
+
+    @Test( timeout = 5000L )
+    public void expiresAfterMoreThanOneTurn() throws Exception {
+        Counting timeout = new Counting();
+        long start = wheel.now();
+
+        // The wheel has 512 buckets
+        wheel.schedule( timeout, 700 );
+
+        assertTrue( timeout.expired.await( 3, TimeUnit.SECONDS ) );
+        assertTrue( wheel.now() - start >= 700 );
+    }
+
+    @Test( timeout = 5000L )
+    public void cancelledAndRescheduledTimeoutsDoNotExpireEarly() throws Exception {
+        Counting cancelled = new Counting();
+        Counting rescheduled = new Counting();
+        Counting neighbour = new Counting();
+
+        wheel.schedule( cancelled, 10 );
+        wheel.schedule( rescheduled, 10 );
+        wheel.schedule( neighbour, 10 );
+
+        wheel.cancel( cancelled );
+        wheel.schedule( rescheduled, 1000 );
+
+        assertTrue( neighbour.expired.await( 1, TimeUnit.SECONDS ) );
+
+        Thread.sleep( 50 );
+
+        assertEquals( 0, cancelled.expirations.get() );
+        assertEquals( 0, rescheduled.expirations.get() );
+    }
+}
@@ -0,0 +1,455 @@
+package org.jetio;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetio.metrics.Metrics;
+import org.jetlang.channels.MemoryChannel;
+import org.jetlang.channels.Publisher;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author <a href="mailto:peter.royal@pobox.com">peter royal</a> */
+public class WriteQueueTest {
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final AtomicInteger writabilityChanges = new AtomicInteger();
+    private final Configuration config = new Configuration();
+    private boolean retainSelectionKeys = true;
+    private WriteSelector writeSelector;
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private Session session;
+
+    @Before
+    public void connect() throws IOException {
+        server = ServerSocketChannel.open();
+        server.socket().bind( new InetSocketAddress( "localhost", 0 ) );
+
+        client = SocketChannel.open( server.socket().getLocalSocketAddress() );
+    }
+
+    private void open() throws IOException {
+        SocketChannel channel = server.accept();
+
+        config.setBufferSlizeSize( 64 );
+        config.setBufferMinimumSize( 64 );
+        config.setBufferMaximumSize( 64 );
+        config.setBufferAllocationSize( 64 * 16 );
+
+        session = new Session( channel,
+                               new Publisher<Event>() {
+                                   @Override
+                                   public void publish( Event msg ) {
+                                       scheduled.incrementAndGet();
+
+                                       if ( null != writeSelector ) {
+                                           writeSelector.onMessage( msg );
+                                       }
+                                   }
+                               },
+                               new Publisher<Event>() {
+                                   @Override
+                                   public void publish( Event msg ) {
+                                       writabilityChanges.incrementAndGet();
+                                   }
+                               },
+                               new Publisher<DataEvent<IOException>>() {
+                                   @Override
+                                   public void publish( DataEvent<IOException> msg ) {
+                                       msg.data().printStackTrace();
+                                   }
+                               },
+                               new Publisher<Event>() {
+                                   @Override
+                                   public void publish( Event msg ) {
+                                   }
+                               },
+                               new SessionBufferSource( new BufferQueue( config ), 64 ),
+                               0,
+                               retainSelectionKeys,
+                               config,
+                               new Metrics() );
+        session.setNonBlocking();
+    }
+
+    @After
+    public void close() throws IOException {
+        if ( null != writeSelector ) {
+            writeSelector.dispose();
+        }
+
+        client.close();
+        server.close();
+    }
+
+    @Test( timeout = 10000L )
+    public void concurrentWritersKeepTheirOrder() throws Exception {
+        config.setWriteQueueCapacity( 8 );
+        open();
+
+        final int writers = 4;
+        final int messages = 20000;
+        Thread[] threads = new Thread[writers];
+
+        for ( int i = 0; i < writers; i++ ) {
+            final int id = i;
+
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for ( int m = 0; m < messages; m++ ) {
+                        ByteBuffer header = ByteBuffer.allocate( 4 );
+                        ByteBuffer body = ByteBuffer.allocate( 4 );
+
+                        header.putInt( id ).flip();
+                        body.putInt( m ).flip();
+
+                        session.write( header, body );
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        // Stand in for the write selector, flushing whatever couldn't be written right away
+        Thread selector = new Thread() {
+            @Override
+            public void run() {
+                while ( !isInterrupted() ) {
+                    try {
+                        session.processWriteQueue();
+                    } catch( IOException e ) {
+                        return;
+                    }
+
+                    Thread.yield();
+                }
+            }
+        };
+        selector.start();
+
+        DataInputStream in = new DataInputStream( client.socket().getInputStream() );
+        int[] next = new int[writers];
+
+        for ( int i = 0; i < writers * messages; i++ ) {
+            int id = in.readInt();
+
+            assertEquals( next[id]++, in.readInt() );
+        }
+
+        selector.interrupt();
+
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+
+        assertTrue( session.isWriteQueueEmpty() );
+    }
+
+    @Test( timeout = 10000L )
+    public void writesNeverWaitOnASlowReader() throws Exception {
+        open();
+
+        final int messages = 20000;
+
+        // Nobody is reading, so the socket fills and the ring with it, well before we are done
+        for ( int i = 0; i < messages; i++ ) {
+            ByteBuffer buffer = ByteBuffer.allocate( 1024 );
+
+            buffer.putInt( i ).position( buffer.capacity() );
+            buffer.flip();
+
+            session.write( buffer );
+        }
+
+        assertFalse( session.isWriteQueueEmpty() );
+        assertTrue( session.isWritable() );
+
+        DataInputStream in = new DataInputStream( client.socket().getInputStream() );
+        byte[] rest = new byte[1020];
+
+        for ( int i = 0; i < messages; i++ ) {
+            assertEquals( i, in.readInt() );
+            in.readFully( rest );
+
+            session.processWriteQueue();
+        }
+
+        assertTrue( session.isWriteQueueEmpty() );
+    }
+
+    @Test( timeout = 5000L )
+    public void writesMoreBuffersThanTheRingHolds() throws Exception {
+        open();
+
+        ByteBuffer[] buffers = new ByteBuffer[config.getWriteQueueCapacity() * 4];
+
+        for ( int i = 0; i < buffers.length; i++ ) {
+            buffers[i] = ByteBuffer.allocate( 4 );
+            buffers[i].putInt( i ).flip();
+        }
+
+        WriteFuture future = session.writeWithFuture( buffers );
+        DataInputStream in = new DataInputStream( client.socket().getInputStream() );
+
+        for ( int i = 0; i < buffers.length; i++ ) {
+            assertEquals( i, in.readInt() );
+        }
+
+        assertTrue( future.await( 1, TimeUnit.SECONDS ) );
+        assertTrue( future.isSuccess() );
+    }
+
+    @Test( timeout = 5000L )
+    public void rejectsAboveHighWaterMark() throws Exception {
+        config.setWriteHighWaterMark( 1024 * 1024 );
+        config.setWriteLowWaterMark( 0 );
+        config.setWriteBackpressure( WriteBackpressure.Reject );
+        open();
+
+        // Nobody is reading, so eventually the socket buffers fill up and data queues
+        try {
+            while ( true ) {
+                session.write( ByteBuffer.allocate( 65536 ) );
+            }
+        } catch( WriteRejectedException e ) {
+            // expected
+        }
+
+        assertFalse( session.isWritable() );
+        assertEquals( 1, writabilityChanges.get() );
+        assertTrue( scheduled.get() > 0 );
+
+        // Drain everything, and we should be writable again
+        DataInputStream in = new DataInputStream( client.socket().getInputStream() );
+        byte[] data = new byte[65536];
+
+        while ( !session.isWriteQueueEmpty() ) {
+            in.readFully( data );
+            session.processWriteQueue();
+        }
+
+        assertTrue( session.isWritable() );
+        assertEquals( 2, writabilityChanges.get() );
+    }
+
+    @Test( timeout = 5000L )
+    public void futuresCompleteOnceWritten() throws Exception {
+        open();
+
+        final AtomicLong flushed = new AtomicLong();
+
+        session.setFlushListener( new FlushListener() {
+            @Override
+            public void flushed( Session session, long written, boolean drained ) {
+                flushed.addAndGet( written );
+            }
+        } );
+
+        WriteFuture future = session.writeWithFuture( ByteBuffer.wrap( new byte[]{ 1, 2, 3 } ) );
+
+        assertTrue( future.await( 1, TimeUnit.SECONDS ) );
+        assertTrue( future.isSuccess() );
+        assertEquals( 3, flushed.get() );
+
+        future.release();
+
+        assertSame( future, session.writeWithFuture( ByteBuffer.allocate( 1 ) ) );
+    }
+
+    @Test( timeout = 5000L )
+    public void futuresFailWhenSessionCloses() throws Exception {
+        open();
+
+        // Nobody is reading, so eventually a write has to wait
+        WriteFuture future;
+
+        do {
+            future = session.writeWithFuture( ByteBuffer.allocate( 65536 ) );
+        } while ( future.isDone() );
+
+        session.close();
+        session.discardWriteQueue();
+
+        assertTrue( future.isDone() );
+        assertFalse( future.isSuccess() );
+        assertNotNull( future.cause() );
+    }
+
+    @Test( timeout = 10000L )
+    public void closingWhileWritingCompletesEveryFuture() throws Exception {
+        config.setWriteQueueCapacity( 8 );
+        open();
+
+        final int writers = 4;
+        final List<List<WriteFuture>> written = new ArrayList<List<WriteFuture>>();
+        Thread[] threads = new Thread[writers];
+
+        for ( int i = 0; i < writers; i++ ) {
+            final List<WriteFuture> futures = new ArrayList<WriteFuture>();
+
+            written.add( futures );
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    while ( !session.isClosed() ) {
+                        futures.add( session.writeWithFuture( ByteBuffer.allocate( 64 ), ByteBuffer.allocate( 64 ) ) );
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                byte[] data = new byte[1024];
+
+                try {
+                    InputStream in = client.socket().getInputStream();
+
+                    while ( -1 != in.read( data ) ) {
+                        // discard
+                    }
+                } catch( IOException e ) {
+                    // closed
+                }
+            }
+        };
+        reader.start();
+
+        Thread.sleep( 100 );
+
+        session.close();
+        session.discardWriteQueue();
+
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+
+        for ( List<WriteFuture> futures : written ) {
+            for ( WriteFuture future : futures ) {
+                assertTrue( future.isDone() );
+            }
+        }
+
+        assertTrue( session.isWriteQueueEmpty() );
+    }
+
+    @Test( timeout = 5000L )
+    public void sharedBuffersReturnToThePoolOnceEveryWriteIsDone() throws Exception {
+        open();
+
+        final AtomicInteger released = new AtomicInteger();
+        ByteBuffer data = ByteBuffer.allocate( 4 );
+        SharedBuffer shared = new SharedBuffer( new SessionBufferSource( new BufferQueue( config ), 64 ) {
+            @Override
+            public void release( ByteBuffer buffer ) {
+                released.incrementAndGet();
+            }
+        }, data );
+
+        data.putInt( 42 ).flip();
+
+        session.write( shared );
+        session.write( shared );
+
+        // Each write read from a view of its own
+        assertEquals( 0, data.position() );
+
+        DataInputStream in = new DataInputStream( client.socket().getInputStream() );
+
+        assertEquals( 42, in.readInt() );
+        assertEquals( 42, in.readInt() );
+        assertEquals( 0, released.get() );
+
+        shared.release();
+
+        assertEquals( 1, released.get() );
+    }
+
+    @Test( timeout = 5000L )
+    public void sharedBuffersAreReleasedWhenSessionCloses() throws Exception {
+        open();
+
+        final AtomicInteger released = new AtomicInteger();
+        SharedBuffer shared = new SharedBuffer( new SessionBufferSource( new BufferQueue( config ), 64 ) {
+            @Override
+            public void release( ByteBuffer buffer ) {
+                released.incrementAndGet();
+            }
+        }, ByteBuffer.allocate( 65536 ) );
+
+        // Nobody is reading, so eventually the writes back up
+        while ( session.isWriteQueueEmpty() ) {
+            session.write( shared );
+        }
+
+        shared.release();
+
+        assertEquals( 0, released.get() );
+
+        session.close();
+        session.discardWriteQueue();
+
+        assertEquals( 1, released.get() );
+    }
+
+    @Test( timeout = 10000L )
+    public void drainedWriteKeyIsCancelledWhenNotRetained() throws Exception {
+        retainSelectionKeys = false;
+        open();
+
+        writeSelector = new WriteSelector( 0, new MemoryChannel<DataEvent<IOException>>(), config, new Metrics() );
+        writeSelector.start();
+
+        // Nobody is reading yet, so eventually a write has to wait for the socket
+        while ( session.isWriteQueueEmpty() ) {
+            session.write( ByteBuffer.allocate( 65536 ) );
+        }
+
+        assertTrue( scheduled.get() > 0 );
+
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                byte[] data = new byte[65536];
+
+                try {
+                    InputStream in = client.socket().getInputStream();
+
+                    while ( -1 != in.read( data ) ) {
+                        // discard
+                    }
+                } catch( IOException e ) {
+                    // closed
+                }
+            }
+        };
+        reader.start();
+
+        long deadline = System.currentTimeMillis() + 5000;
+
+        while ( !session.isWriteQueueEmpty() || session.selectionKeys().hasKey( SelectionOp.Write ) ) {
+            if ( System.currentTimeMillis() > deadline ) {
+                break;
+            }
+
+            Thread.sleep( 10 );
+        }
+
+        assertTrue( session.isWriteQueueEmpty() );
+        assertFalse( session.selectionKeys().hasKey( SelectionOp.Write ) );
+    }
+}
@@ -0,0 +1,120 @@
+package org.jetio.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetio.Session;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author <a href="mailto:peter.royal@pobox.com">peter royal</a> */
+public class FrameDecoderTest {
+    private final Charset charset = Charset.forName( "UTF-8" );
+    private final List<String> frames = new ArrayList<String>();
+    private final FrameHandler handler = new FrameHandler() {
+        @Override
+        public void frame( Session session, ByteBuffer frame ) {
+            frames.add( charset.decode( frame ).toString() );
+        }
+    };
+
+    /** Feed data the way the read path does, retaining whatever wasn't consumed */
+    private ByteBuffer feed( FrameDecoder decoder, ByteBuffer buffer, byte... data ) throws IOException {
+        buffer.put( data );
+        buffer.flip();
+
+        decoder.decode( null, buffer );
+
+        buffer.compact();
+
+        return buffer;
+    }
+
+    @Test
+    public void fixedLength() throws Exception {
+        FrameDecoder decoder = new FixedLengthFrameDecoder( handler, 3 );
+        ByteBuffer buffer = ByteBuffer.allocate( 16 );
+
+        feed( decoder, buffer, bytes( "abcde" ) );
+        assertEquals( 2, buffer.position() );
+
+        feed( decoder, buffer, bytes( "f" ) );
+
+        assertEquals( 0, buffer.position() );
+        assertEquals( "[abc, def]", frames.toString() );
+    }
+
+    @Test
+    public void lengthPrefixed() throws Exception {
+        FrameDecoder decoder = new LengthPrefixedFrameDecoder( handler, 2 );
+        ByteBuffer buffer = ByteBuffer.allocate( 16 );
+
+        feed( decoder, buffer, (byte) 0 );
+        feed( decoder, buffer, (byte) 2, (byte) 'h', (byte) 'i', (byte) 0, (byte) 0, (byte) 0, (byte) 3, (byte) 'y' );
+
+        assertEquals( "[hi, ]", frames.toString() );
+
+        feed( decoder, buffer, bytes( "ou" ) );
+
+        assertEquals( "[hi, , you]", frames.toString() );
+        assertEquals( 0, buffer.position() );
+    }
+
+    @Test
+    public void lengthPrefixedLittleEndian() throws Exception {
+        FrameDecoder decoder = new LengthPrefixedFrameDecoder( handler, 4, ByteOrder.LITTLE_ENDIAN, 100 );
+
+        feed( decoder, ByteBuffer.allocate( 16 ), (byte) 1, (byte) 0, (byte) 0, (byte) 0, (byte) 'x' );
+
+        assertEquals( "[x]", frames.toString() );
+    }
+
+    @Test( expected = IOException.class )
+    public void lengthPrefixedTooLarge() throws Exception {
+        FrameDecoder decoder = new LengthPrefixedFrameDecoder( handler, 1, ByteOrder.BIG_ENDIAN, 4 );
+
+        feed( decoder, ByteBuffer.allocate( 16 ), (byte) 5 );
+    }
+
+    @Test
+    public void lengthPrefixedLargerThanBuffer() throws Exception {
+        FrameDecoder decoder = new LengthPrefixedFrameDecoder( handler, 1 );
+
+        // Left for the read path to move into a larger buffer
+        ByteBuffer buffer = feed( decoder, ByteBuffer.allocate( 4 ), (byte) 8, (byte) 'a', (byte) 'b', (byte) 'c' );
+
+        assertTrue( frames.isEmpty() );
+        assertEquals( 4, buffer.position() );
+    }
+
+    @Test
+    public void delimiter() throws Exception {
+        FrameDecoder decoder = new DelimiterFrameDecoder( handler, bytes( "\r\n" ), 10 );
+        ByteBuffer buffer = ByteBuffer.allocate( 32 );
+
+        feed( decoder, buffer, bytes( "one\r\ntwo\r" ) );
+
+        assertEquals( "[one]", frames.toString() );
+
+        feed( decoder, buffer, bytes( "\n\r\nthree" ) );
+
+        assertEquals( "[one, two, ]", frames.toString() );
+        assertEquals( 5, buffer.position() );
+    }
+
+    @Test( expected = IOException.class )
+    public void delimiterNotFound() throws Exception {
+        FrameDecoder decoder = new DelimiterFrameDecoder( handler, bytes( "\n" ), 4 );
+
+        feed( decoder, ByteBuffer.allocate( 32 ), bytes( "12345" ) );
+    }
+
+    private byte[] bytes( String s ) {
+        return s.getBytes( charset );
+    }
+}
@@ -0,0 +1,42 @@
+package org.jetio.metrics;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+/** @author <a href="mailto:peter.royal@pobox.com">peter royal</a> */
+public class HistogramTest {
+    private final Histogram histogram = new Histogram();
+
+    @Test
+    public void bucketsCoverEveryValueWithinAnEighth() {
+        for ( long value = 0; value < 1 << 20; value += 1 + value / 64 ) {
+            long highest = Histogram.highestValue( Histogram.index( value ) );
+
+            assertTrue( value + " reported as " + highest, highest >= value && highest <= value + value / 8 );
+        }
+
+        assertTrue( Histogram.highestValue( Histogram.index( Long.MAX_VALUE ) ) >= Long.MAX_VALUE / 8 * 7 );
+    }
+
+    @Test
+    public void percentilesOfUniformValues() {
+        for ( int i = 1; i <= 1000; i++ ) {
+            histogram.record( i );
+        }
+
+        assertEquals( 1000, histogram.count() );
+        assertEquals( 1000, histogram.max() );
+        assertEquals( 500.5, histogram.mean(), 0.001 );
+        assertEquals( 500, histogram.percentile( 50 ), 500 / 8 );
+        assertEquals( 990, histogram.percentile( 99 ), 990 / 8 );
+        assertEquals( 1000, histogram.percentile( 100 ) );
+    }
+
+    @Test
+    public void emptyHistogram() {
+        assertEquals( 0, histogram.count() );
+        assertEquals( 0, histogram.percentile( 99 ) );
+        assertEquals( 0, histogram.mean(), 0 );
+    }
+}